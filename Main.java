@@ -1,5 +1,13 @@
 import functions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class Main {
     public static void main(String[] args) {
         System.out.println("Тестирование табулированной функции\n");
@@ -11,7 +19,57 @@ public class Main {
         // тестирование LinkedListTabulatedFunction
         System.out.println("\nLinked list tabulated function:");
         testFunction(new LinkedListTabulatedFunction(0, 4, 5), "Linked List");
-        
+
+        // тестирование PrimitiveArrayTabulatedFunction
+        System.out.println("\nPrimitive array tabulated function:");
+        testFunction(new PrimitiveArrayTabulatedFunction(0, 4, 5), "Primitive Array");
+
+        // тестирование ConcurrentTabulatedFunction
+        System.out.println("\nConcurrent tabulated function:");
+        testFunction(new ConcurrentTabulatedFunction(0, 4, 5), "Concurrent");
+
+        // тестирование CachingTabulatedFunction поверх связного списка
+        System.out.println("\nCaching tabulated function:");
+        CachingTabulatedFunction caching = new CachingTabulatedFunction(new LinkedListTabulatedFunction(0, 4, 5));
+        testFunction(caching, "Caching");
+        System.out.println("Попаданий в кэш: " + caching.getHitCount() + ", промахов: " + caching.getMissCount());
+
+        // интегралы кусочно-линейной функции
+        System.out.println("\nИнтегрирование f(x) = x^2 по 5 точкам:");
+        IntegratingTabulatedFunction integrating = new IntegratingTabulatedFunction(new ArrayTabulatedFunction(0, 4, 5, x -> x * x));
+        System.out.println("Интеграл на [0, 4]: " + integrating.integral() + ", на [1, 3]: " + integrating.integral(1, 3));
+
+        // арифметика табулированных функций: сразу таблицей и лениво
+        System.out.println("\nСумма x и x^2 на общих узлах:");
+        TabulatedFunction linear = new ArrayTabulatedFunction(0, 4, 3, x -> x);
+        TabulatedFunction square = new LinkedListTabulatedFunction(0, 4, 5, x -> x * x);
+        System.out.println(TabulatedFunctions.sum(linear, square));
+        Function lazy = Functions.composition(square, Functions.scale(linear, 1, 0.5));
+        System.out.println("square(x / 2) при x = 3 (лениво): " + lazy.getFunctionValue(3));
+
+        // сжатое хранение большой равномерной таблицы
+        System.out.println("\nСжатие таблицы sin(x) на 100000 точках:");
+        CompressedTabulatedFunction compressed = new CompressedTabulatedFunction(new ArrayTabulatedFunction(0, 100, 100000, Math::sin));
+        System.out.println("Байт на точку: " + (double) compressed.getCompressedSize() / compressed.getPointsCount()
+                + ", sin(1.5) ~ " + compressed.getFunctionValue(1.5));
+
+        // тестирование MappedTabulatedFunction на временном файле
+        System.out.println("\nMapped tabulated function:");
+        try {
+            Path file = Files.createTempFile("function", ".tab");
+            try (MappedTabulatedFunction mapped = new MappedTabulatedFunction(file, 0, 4, 5)) {
+                testFunction(mapped, "Mapped");
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка работы с файлом: " + e.getMessage());
+        }
+
+        // тестирование двоичной записи и чтения
+        System.out.println("\nДвоичная запись и чтение:");
+        testSerialization();
+
         // тестирование исключений
         System.out.println("\nТестирование исключений:");
         testExceptions();
@@ -23,17 +81,15 @@ public class Main {
         System.out.println("1. Создание " + type + " функции f(x) = x^2 на интервале [0, 4]:");
         
         // устанавливаем значения y = x^2 для каждой точки
-        for (int i = 0; i < function.getPointsCount(); i++) {
-            double x = function.getPointX(i);
-            function.setPointY(i, x * x);  // y = x²
-        }
+        function.fillY(x -> x * x);
         
         // выводим информацию о функции
         printFunctionInfo(function);
         
         // вычисление значений в разных точках
         System.out.println("\n2. Вычисление значений функции в различных точках:");
-        double[] testPoints = {-1, 0, 0.5, 1, 1.5, 2, 2.5, 3, 3.5, 4, 5};
+        double[] testPoints = {-1, 0, 0.5, 1, 1.5, 2, 2.5, 3, 3.5, 4, 5,
+                Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
         
         for (double x : testPoints) {
             double y = function.getFunctionValue(x);
@@ -71,8 +127,36 @@ public class Main {
         } catch (Exception e) {
             System.out.println("Ошибка при удалении точки: " + e.getMessage());
         }
+
+        // добавление набора точек в произвольном порядке
+        System.out.println("\n6. Добавление набора точек (3.5, 12.25), (0.5, 0.25):");
+        try {
+            function.addPoints(new FunctionPoint[]{new FunctionPoint(3.5, 12.25), new FunctionPoint(0.5, 0.25)});
+            printFunctionInfo(function);
+        } catch (Exception e) {
+            System.out.println("Ошибка при добавлении набора точек: " + e.getMessage());
+        }
     }
     
+    static void testSerialization() {
+        try {
+            TabulatedFunction function = new ArrayTabulatedFunction(0, 4, new double[]{0, 1, 4, 9, 16});
+            function.addPoint(new FunctionPoint(1.5, 2.25));
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            TabulatedFunctions.writeTabulatedFunction(function, new DataOutputStream(bytes));
+            System.out.println("Записано байт: " + bytes.size());
+
+            // читаем обратно в функцию на связном списке
+            TabulatedFunction restored = TabulatedFunctions.readTabulatedFunction(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                    new LinkedListTabulatedFunction.LinkedListTabulatedFunctionFactory());
+            printFunctionInfo(restored);
+        } catch (IOException | InappropriateFunctionPointException e) {
+            System.out.println("Ошибка записи функции: " + e.getMessage());
+        }
+    }
+
     static void testExceptions() {
         System.out.println("Проверка работы исключений:");
         
@@ -114,6 +198,27 @@ public class Main {
         } catch (IllegalStateException e) {
             System.out.println(" Ошибка: " + e.getMessage());
         }
+
+        try {
+            System.out.println("6. Изменение неизменяемого снимка:");
+            TabulatedFunction frozen = new ArrayTabulatedFunction(0, 10, 3).freeze();
+            frozen.setPointY(1, 1.0);
+        } catch (UnsupportedOperationException e) {
+            System.out.println(" Ошибка: " + e.getMessage());
+        }
+
+        TabulatedFunction edited = new LinkedListTabulatedFunction(0, 10, 6);
+        try {
+            System.out.println("7. Пакет изменений с нарушением порядка:");
+            FunctionEditBatch batch = edited.edit();
+            batch.setPointY(0, 1.0);
+            batch.setPointX(1, 9.0);
+            batch.addPoint(new FunctionPoint(6.0, 0.0));
+            batch.commit();
+        } catch (InappropriateFunctionPointException e) {
+            System.out.println(" Ошибка: " + e.getMessage());
+            System.out.println(" Функция не изменилась: y(0) = " + edited.getPointY(0));
+        }
     }
     
     private static void printFunctionInfo(TabulatedFunction function) {
@@ -122,14 +227,11 @@ public class Main {
         System.out.println("Количество точек: " + function.getPointsCount());
         System.out.println("Точки функции:");
         
-        for (int i = 0; i < function.getPointsCount(); i++) {
-            try {
-                double x = function.getPointX(i);
-                double y = function.getPointY(i);
-                System.out.printf("  %d: (%.2f, %.4f)\n", i, x, y);
-            } catch (FunctionPointIndexOutOfBoundsException e) {
-                System.out.println("  Ошибка доступа к точке " + i + ": " + e.getMessage());
-            }
+        // обходим точки курсором - без поиска каждой точки по номеру
+        FunctionPointCursor cursor = function.cursor();
+        while (cursor.hasNext()) {
+            cursor.next();
+            System.out.printf("  %d: (%.2f, %.4f)\n", cursor.getIndex(), cursor.getX(), cursor.getY());
         }
     }
 }
\ No newline at end of file
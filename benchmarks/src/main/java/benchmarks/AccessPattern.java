@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+// Порядок, в котором бенчмарк обращается к точкам функции
+public enum AccessPattern {
+    // равномерно случайные номера
+    RANDOM {
+        void fill(int[] indices, int pointsCount, SplittableRandom random) {
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = random.nextInt(pointsCount);
+            }
+        }
+    },
+    // подряд слева направо, по кругу
+    SEQUENTIAL {
+        void fill(int[] indices, int pointsCount, SplittableRandom random) {
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i % pointsCount;
+            }
+        }
+    },
+    // серии из CLUSTER_LENGTH обращений в окрестности случайной точки
+    CLUSTERED {
+        void fill(int[] indices, int pointsCount, SplittableRandom random) {
+            int center = 0;
+            for (int i = 0; i < indices.length; i++) {
+                if (i % CLUSTER_LENGTH == 0) {
+                    center = random.nextInt(pointsCount);
+                }
+                int index = center + random.nextInt(-CLUSTER_RADIUS, CLUSTER_RADIUS + 1);
+                indices[i] = Math.max(0, Math.min(pointsCount - 1, index));
+            }
+        }
+    };
+
+    static final int CLUSTER_LENGTH = 64;
+    static final int CLUSTER_RADIUS = 16;
+
+    // заполняет последовательность номеров точек в диапазоне [0, pointsCount)
+    abstract void fill(int[] indices, int pointsCount, SplittableRandom random);
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import functions.TabulatedFunction;
+
+// Оба конструктора: по количеству точек и по массиву значений
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstructionBenchmark {
+
+    @Param({"ARRAY", "LINKED_LIST", "LINKED_LIST_INDEXED", "PRIMITIVE_ARRAY"})
+    public Implementation implementation;
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private double[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (double) i * i;
+        }
+    }
+
+    @Benchmark
+    public TabulatedFunction byPointsCount() {
+        return implementation.create(0, size - 1, size);
+    }
+
+    @Benchmark
+    public TabulatedFunction byValues() {
+        return implementation.create(0, size - 1, values);
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import functions.TabulatedFunction;
+
+// Функция y = x^2 на [0, size - 1] с шагом 1 и заранее подготовленная последовательность обращений
+@State(Scope.Thread)
+public class FunctionState {
+    // длина последовательности обращений (степень двойки, чтобы брать остаток маской)
+    static final int SEQUENCE_LENGTH = 1 << 16;
+
+    @Param({"ARRAY", "LINKED_LIST", "LINKED_LIST_INDEXED", "PRIMITIVE_ARRAY"})
+    public Implementation implementation;
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"RANDOM", "SEQUENTIAL", "CLUSTERED"})
+    public AccessPattern access;
+
+    TabulatedFunction function;
+    int[] indices;      // номера точек в порядке обращения
+    double[] args;      // аргументы между узлами в том же порядке
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (double) i * i;
+        }
+        function = implementation.create(0, size - 1, values);
+
+        SplittableRandom random = new SplittableRandom(42);
+        indices = new int[SEQUENCE_LENGTH];
+        access.fill(indices, size, random);
+        args = new double[SEQUENCE_LENGTH];
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            // середина отрезка справа от узла (у последнего узла - слева)
+            args[i] = indices[i] < size - 1 ? indices[i] + 0.5 : indices[i] - 0.5;
+        }
+    }
+
+    // номер следующего обращения в последовательности
+    int next() {
+        int position = cursor;
+        cursor = (position + 1) & (SEQUENCE_LENGTH - 1);
+        return position;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import functions.ArrayTabulatedFunction;
+import functions.LinkedListTabulatedFunction;
+import functions.PrimitiveArrayTabulatedFunction;
+import functions.TabulatedFunction;
+
+// Реализации TabulatedFunction, которые сравниваются в бенчмарках
+public enum Implementation {
+    ARRAY {
+        TabulatedFunction create(double leftX, double rightX, int pointsCount) {
+            return new ArrayTabulatedFunction(leftX, rightX, pointsCount);
+        }
+
+        TabulatedFunction create(double leftX, double rightX, double[] values) {
+            return new ArrayTabulatedFunction(leftX, rightX, values);
+        }
+    },
+    LINKED_LIST {
+        TabulatedFunction create(double leftX, double rightX, int pointsCount) {
+            return new LinkedListTabulatedFunction(leftX, rightX, pointsCount);
+        }
+
+        TabulatedFunction create(double leftX, double rightX, double[] values) {
+            return new LinkedListTabulatedFunction(leftX, rightX, values);
+        }
+    },
+    // связный список с включенным индексом (skip list)
+    LINKED_LIST_INDEXED {
+        TabulatedFunction create(double leftX, double rightX, int pointsCount) {
+            LinkedListTabulatedFunction function = new LinkedListTabulatedFunction(leftX, rightX, pointsCount);
+            function.setIndexed(true);
+            return function;
+        }
+
+        TabulatedFunction create(double leftX, double rightX, double[] values) {
+            LinkedListTabulatedFunction function = new LinkedListTabulatedFunction(leftX, rightX, values);
+            function.setIndexed(true);
+            return function;
+        }
+    },
+    PRIMITIVE_ARRAY {
+        TabulatedFunction create(double leftX, double rightX, int pointsCount) {
+            return new PrimitiveArrayTabulatedFunction(leftX, rightX, pointsCount);
+        }
+
+        TabulatedFunction create(double leftX, double rightX, double[] values) {
+            return new PrimitiveArrayTabulatedFunction(leftX, rightX, values);
+        }
+    };
+
+    abstract TabulatedFunction create(double leftX, double rightX, int pointsCount);
+
+    abstract TabulatedFunction create(double leftX, double rightX, double[] values);
+}
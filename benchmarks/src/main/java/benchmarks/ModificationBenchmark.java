@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import functions.InappropriateFunctionPointException;
+
+// Добавление и удаление точек. Каждая операция сразу отменяется обратной,
+// чтобы размер таблицы оставался равным параметру size
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModificationBenchmark {
+
+    // вставка точки в середину отрезка и удаление ее же
+    @Benchmark
+    public void addPoint(FunctionState state, ReusablePoint reusable) throws InappropriateFunctionPointException {
+        int position = state.next();
+        int index = state.indices[position];
+        double x = state.args[position];
+        reusable.point.setX(x);
+        reusable.point.setY(x * x);
+        state.function.addPoint(reusable.point);
+        state.function.deletePoint(x > index ? index + 1 : index);
+    }
+
+    // удаление узла и возвращение его на место
+    @Benchmark
+    public void deletePoint(FunctionState state, ReusablePoint reusable) throws InappropriateFunctionPointException {
+        int index = state.indices[state.next()];
+        state.function.deletePoint(index);
+        reusable.point.setX(index);
+        reusable.point.setY((double) index * index);
+        state.function.addPoint(reusable.point);
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import functions.FunctionPoint;
+import functions.InappropriateFunctionPointException;
+
+// Чтение и замена точек по номеру
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointAccessBenchmark {
+
+    @Benchmark
+    public FunctionPoint getPoint(FunctionState state) {
+        return state.function.getPoint(state.indices[state.next()]);
+    }
+
+    @Benchmark
+    public FunctionPoint getPointReuse(FunctionState state, ReusablePoint reusable) {
+        return state.function.getPoint(state.indices[state.next()], reusable.point);
+    }
+
+    @Benchmark
+    public double getPointY(FunctionState state) {
+        return state.function.getPointY(state.indices[state.next()]);
+    }
+
+    // x узла с номером i равен i, поэтому точка (i, i^2) заменяет узел самим собой
+    @Benchmark
+    public void setPoint(FunctionState state, ReusablePoint reusable) throws InappropriateFunctionPointException {
+        int index = state.indices[state.next()];
+        reusable.point.setX(index);
+        reusable.point.setY((double) index * index);
+        state.function.setPoint(index, reusable.point);
+    }
+
+    @Benchmark
+    public void setPointY(FunctionState state) {
+        int index = state.indices[state.next()];
+        state.function.setPointY(index, (double) index * index);
+    }
+}
@@ -0,0 +1,12 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import functions.FunctionPoint;
+
+// Точка-аргумент, которая создается один раз, чтобы бенчмарк не считал ее выделение
+@State(Scope.Thread)
+public class ReusablePoint {
+    final FunctionPoint point = new FunctionPoint();
+}
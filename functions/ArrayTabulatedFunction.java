@@ -1,9 +1,16 @@
 package functions;
 
+import java.util.function.DoubleUnaryOperator;
+
 //Класс хранит точки в упорядоченном массиве
 public class ArrayTabulatedFunction implements TabulatedFunction {
     private FunctionPoint[] points;     // Массив для хранения точек
     private int pointsCount;           // Фактическое количество точек
+    private int lastSegmentIndex;      // Номер отрезка, найденного при последнем вычислении значения
+    private boolean uniform;           // Точки по-прежнему стоят с равным шагом (сетка из конструктора не менялась)
+    private double uniformStep;        // Шаг равномерной сетки
+    private int modCount;              // Число добавлений и удалений точек (для курсоров)
+    private FunctionMetrics.Table metrics;  // Счетчики таблицы для метрик (null, если функция не названа)
 
     // КОНСТРУКТОРЫ:
     public ArrayTabulatedFunction(double leftX, double rightX, int pointsCount) throws IllegalArgumentException {
@@ -21,6 +28,8 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
 
         // Вычисляем шаг между точками
         double step = (rightX - leftX) / (pointsCount - 1);
+        this.uniform = true;
+        this.uniformStep = step;
         
         // Создаем точки с равными интервалами
         for (int i = 0; i < pointsCount; i++) {
@@ -29,6 +38,12 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
         }
     }
 
+    //Равномерная сетка, значения в узлах вычисляются генератором y = generator(x) (для больших таблиц параллельно)
+    public ArrayTabulatedFunction(double leftX, double rightX, int pointsCount, DoubleUnaryOperator generator) throws IllegalArgumentException {
+        this(leftX, rightX, pointsCount);
+        fillY(generator);
+    }
+
     //Вместо количества точек получает значения функции в виде массива
     public ArrayTabulatedFunction(double leftX, double rightX, double[] values) throws IllegalArgumentException {
         if (leftX >= rightX) {
@@ -42,6 +57,8 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
         this.points = new FunctionPoint[pointsCount + 2];
 
         double step = (rightX - leftX) / (pointsCount - 1);
+        this.uniform = true;
+        this.uniformStep = step;
         
         // Создаем точки с заданными значениями y
         for (int i = 0; i < pointsCount; i++) {
@@ -50,6 +67,39 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
         }
     }
 
+    //Произвольная (не обязательно равномерная) сетка: абсциссы и ординаты точек в двух массивах
+    public ArrayTabulatedFunction(double[] xs, double[] ys) throws IllegalArgumentException {
+        TabulatedFunctions.checkPoints(xs, ys);
+
+        this.pointsCount = xs.length;
+        this.points = new FunctionPoint[pointsCount + 2];
+        for (int i = 0; i < pointsCount; i++) {
+            points[i] = new FunctionPoint(xs[i], ys[i]);
+        }
+    }
+
+    //Произвольная сетка, заданная массивом точек (точки копируются)
+    public ArrayTabulatedFunction(FunctionPoint[] points) throws IllegalArgumentException {
+        this(TabulatedFunctions.xsOf(points), TabulatedFunctions.ysOf(points));
+    }
+
+    // Фабрика, создающая функции этого класса
+    public static class ArrayTabulatedFunctionFactory implements TabulatedFunctionFactory {
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values) {
+            return new ArrayTabulatedFunction(leftX, rightX, values);
+        }
+
+        public TabulatedFunction createTabulatedFunction(double[] xs, double[] ys) {
+            return new ArrayTabulatedFunction(xs, ys);
+        }
+    }
+
+    // Называет функцию для метрик: ее счетчики дополнительно копятся в FunctionMetrics.table(name).
+    // null - только общие счетчики
+    public void setMetricsName(String name) {
+        metrics = name == null ? null : FunctionMetrics.table(name);
+    }
+
     // МЕТОДЫ ДЛЯ РАБОТЫ С ФУНКЦИЕЙ
     public double getLeftDomainBorder() {
         return points[0].getX();  // Первая точка - самая левая
@@ -59,37 +109,170 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
         return points[pointsCount - 1].getX();  // Последняя точка - самая правая
     }
 
+    // При включенных метриках замеряется время вычисления (см. FunctionMetrics)
     public double getFunctionValue(double x) {
-        // Проверка что x в области определения
-        if (x < getLeftDomainBorder() || x > getRightDomainBorder()) {
+        if (!FunctionMetrics.ENABLED) {
+            return value(x);
+        }
+        long start = System.nanoTime();
+        double y = value(x);
+        FunctionMetrics.recordEvaluation(metrics, System.nanoTime() - start);
+        return y;
+    }
+
+    private double value(double x) {
+        // Проверка что x в области определения (NaN тоже не проходит)
+        if (!(x >= getLeftDomainBorder() && x <= getRightDomainBorder())) {
+            if (FunctionMetrics.ENABLED) {
+                FunctionMetrics.recordOutOfDomain(metrics);
+            }
             return Double.NaN;  // Не число - точка вне области определения
         }
 
         // Ищем интервал, в который попадает x
-        for (int i = 0; i < pointsCount - 1; i++) {
-            double x1 = points[i].getX();
-            double x2 = points[i + 1].getX();
-            
-            // Проверяем совпадение с x1 (используя машинный эпсилон)
-            if (Math.abs(x - x1) < 1e-10) {
-                return points[i].getY();
+        return valueOnSegment(findSegmentIndex(x), x);
+    }
+
+    // Пакетное вычисление: для упорядоченных аргументов отрезки перебираются одним проходом
+    public void getFunctionValues(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        TabulatedFunctions.checkBatchRange(xs, xsOffset, out, outOffset, length);
+        if (!TabulatedFunctions.isSorted(xs, xsOffset, length)) {
+            // Порядок произвольный - ищем отрезок для каждого аргумента отдельно
+            for (int k = 0; k < length; k++) {
+                out[outOffset + k] = getFunctionValue(xs[xsOffset + k]);
+            }
+            return;
+        }
+
+        double left = getLeftDomainBorder();
+        double right = getRightDomainBorder();
+        int last = pointsCount - 2;  // номер последнего отрезка
+        int i = -1;                  // текущий отрезок, только увеличивается
+        for (int k = 0; k < length; k++) {
+            double x = xs[xsOffset + k];
+            if (x < left || x > right) {
+                out[outOffset + k] = Double.NaN;
+                continue;
             }
-            
-            // Проверяем совпадение с x2 (используя машинный эпсилон)
-            if (Math.abs(x - x2) < 1e-10) {
-                return points[i + 1].getY();
+            if (i < 0) {
+                // Первый отрезок ищем поиском: часть массива при параллельном вычислении
+                // может начинаться далеко от левой границы
+                i = findSegmentIndex(x);
             }
-            
-            if (x > x1 && x < x2) {
-                double y1 = points[i].getY();
-                double y2 = points[i + 1].getY();
-                
-                // Линейная интерполяция
-                return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+            while (i < last && points[i + 1].getX() <= x) {
+                i++;
             }
+            out[outOffset + k] = valueOnSegment(i, x);
         }
-        
-        return Double.NaN;
+    }
+
+    // Параллельное вычисление: массив делится на части по номерам, каждая часть - пакетное вычисление.
+    // lastSegmentIndex при этом пишут несколько потоков, но любое записанное значение - допустимый
+    // номер отрезка, так что гонка влияет только на попадание в быстрый путь
+    public double[] evaluateAll(double[] xs) {
+        double[] out = new double[xs.length];
+        TabulatedFunctions.forEachRange(0, xs.length, (from, to) -> getFunctionValues(xs, from, out, from, to - from));
+        return out;
+    }
+
+    // Ординаты меняются параллельно по частям массива; абсциссы не трогаются
+    public void mapY(DoubleUnaryOperator operator) {
+        TabulatedFunctions.forEachRange(0, pointsCount, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                points[i].setY(operator.applyAsDouble(points[i].getY()));
+            }
+        });
+    }
+
+    public void fillY(DoubleUnaryOperator function) {
+        TabulatedFunctions.forEachRange(0, pointsCount, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                points[i].setY(function.applyAsDouble(points[i].getX()));
+            }
+        });
+    }
+
+    // Значение на отрезке [x(i), x(i+1)] с привязкой к узлам
+    private double valueOnSegment(int i, double x) {
+        double x1 = points[i].getX();
+        double x2 = points[i + 1].getX();
+
+        // Проверяем совпадение с x1 (используя машинный эпсилон)
+        if (Math.abs(x - x1) < 1e-10) {
+            return points[i].getY();
+        }
+
+        // Проверяем совпадение с x2 (используя машинный эпсилон)
+        if (Math.abs(x - x2) < 1e-10) {
+            return points[i + 1].getY();
+        }
+
+        double y1 = points[i].getY();
+        double y2 = points[i + 1].getY();
+
+        // Линейная интерполяция
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+    }
+
+    // Возвращает номер i левого конца отрезка [x(i), x(i+1)], содержащего x.
+    // x должен лежать в области определения
+    private int findSegmentIndex(double x) {
+        int last = pointsCount - 2;  // номер последнего отрезка
+
+        // Равномерная сетка: номер отрезка вычисляется сразу, за O(1)
+        if (uniform) {
+            int i = (int) ((x - points[0].getX()) / uniformStep);
+            if (i > last) {
+                i = last;
+            }
+            // Поправка на ошибку округления
+            if (i > 0 && points[i].getX() > x) {
+                i--;
+            } else if (i < last && points[i + 1].getX() <= x) {
+                i++;
+            }
+            return i;
+        }
+
+        // Быстрый путь: x в том же отрезке, что и в прошлый раз, или в следующем
+        // (при монотонном проходе по x поиск не нужен)
+        int cached = lastSegmentIndex;
+        if (cached <= last && x >= points[cached].getX()) {
+            if (cached == last || x < points[cached + 1].getX()) {
+                if (FunctionMetrics.ENABLED) {
+                    FunctionMetrics.recordSegmentCache(metrics, true);
+                }
+                return cached;
+            }
+            if (cached + 1 == last || x < points[cached + 2].getX()) {
+                if (FunctionMetrics.ENABLED) {
+                    FunctionMetrics.recordSegmentCache(metrics, true);
+                }
+                lastSegmentIndex = cached + 1;
+                return cached + 1;
+            }
+        }
+
+        // Бинарный поиск последней точки с x(i) <= x
+        int low = 0;
+        int high = last;
+        int steps = 0;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (points[mid].getX() <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+            steps++;
+        }
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordSegmentCache(metrics, false);
+            FunctionMetrics.recordSearch(metrics, steps);
+        }
+
+        lastSegmentIndex = low;
+        return low;
     }
 
     // МЕТОДЫ ДЛЯ РАБОТЫ С ТОЧКАМИ:
@@ -101,17 +284,36 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
 
     //Возвращает копию точки (для инкапсуляции)
     public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return new FunctionPoint(points[index]);
+    }
+
+    //Записывает координаты точки в переданный объект вместо создания нового
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        if (reuse == null) {
+            return new FunctionPoint(points[index]);
+        }
+        reuse.setX(points[index].getX());
+        reuse.setY(points[index].getY());
+        return reuse;
+    }
+
+    // Проверка номера точки. Исключение с сообщением создается в отдельном методе:
+    // сборка строки не попадает в байткод горячих методов, и JIT охотнее их встраивает
+    private void checkIndex(int index) {
         if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " выходит за границы набора точек");
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
         }
-        return new FunctionPoint(points[index]);
+    }
+
+    private FunctionPointIndexOutOfBoundsException pointNotFound(int index) {
+        return new FunctionPointIndexOutOfBoundsException("Точка с индексом " + index + " не существует. Доступные индексы: 0 до " + (pointsCount - 1));
     }
 
     // Заменяет точку на новую
     public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
-        if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " выходит за границы набора точек");
-        }
+        checkIndex(index);
 
         // Улучшенная проверка с машинным эпсилоном
         if (index > 0 && point.getX() <= points[index - 1].getX() + 1e-10) {
@@ -121,22 +323,23 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             throw new InappropriateFunctionPointException("Новая точка нарушает порядок: x должен быть меньше " + points[index + 1].getX());
         }
 
+        if (point.getX() != points[index].getX()) {
+            uniform = false;  // Узел сдвинут - сетка больше не равномерная
+        }
         points[index].setX(point.getX());
         points[index].setY(point.getY());
     }
 
     // Возвращает координату x точки по индексу
     public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
-        if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " выходит за границы набора точек");
-        }
+        checkIndex(index);
         return points[index].getX();
     }
 
     // Устанавливает новую координату x для точки
     public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
         if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("Точка с индексом " + index + " не существует. Доступные индексы: 0 до " + (pointsCount - 1));
+            throw pointNotFound(index);
         }
 
         // Улучшенная проверка с машинным эпсилоном
@@ -147,22 +350,21 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             throw new InappropriateFunctionPointException("Новый X " + x + " должен быть меньше чем " + points[index + 1].getX() + " (X правого соседа)");
         }
 
+        if (x != points[index].getX()) {
+            uniform = false;  // Узел сдвинут - сетка больше не равномерная
+        }
         points[index].setX(x);
     }
 
     // Возвращает координату y точки по индексу
     public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
-        if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " выходит за границы набора точек");
-        }
+        checkIndex(index);
         return points[index].getY();
     }
 
     // Устанавливает новую координату y для точки
     public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
-        if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " выходит за границы набора точек");
-        }
+        checkIndex(index);
         points[index].setY(y);
     }
 
@@ -175,13 +377,17 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             throw new IllegalStateException("Нельзя удалять точки: минимальное количество точек - 3");
         }
         
-        if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("Индекс " + index + " выходит за границы набора точек");
+        checkIndex(index);
+
+        // Удаление крайней точки сохраняет равный шаг, внутренней - нарушает
+        if (index != 0 && index != pointsCount - 1) {
+            uniform = false;
         }
 
         // Сдвигаем все элементы после удаляемой точки влево
         System.arraycopy(points, index + 1, points, index, pointsCount - index - 1);
         pointsCount--;  // Уменьшаем счетчик точек
+        modCount++;
     }
 
     // Добавляет новую точку в функцию (с сохранением упорядоченности)
@@ -205,12 +411,17 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
             insertIndex++;
         }
 
+        uniform = false;  // Новая точка нарушает равный шаг сетки
+
         // Проверяем нужно ли увеличивать массив
         if (pointsCount >= points.length) {
             // Создаем новый массив в 2 раза больше
             FunctionPoint[] newPoints = new FunctionPoint[points.length * 2];
             System.arraycopy(points, 0, newPoints, 0, pointsCount);
             points = newPoints;
+            if (FunctionMetrics.ENABLED) {
+                FunctionMetrics.recordArrayGrowth(metrics);
+            }
         }
 
         // Сдвигаем элементы чтобы освободить место для новой точки
@@ -219,8 +430,127 @@ public class ArrayTabulatedFunction implements TabulatedFunction {
         // Вставляем новую точку (создаем копию для инкапсуляции)
         points[insertIndex] = new FunctionPoint(point);
         pointsCount++; 
+        modCount++;
     }
-    
+
+    // Добавляет набор точек одним слиянием в новый массив: O(n + k log k) вместо O(n * k).
+    // Совпадение x обнаруживается во время слияния, старый массив при этом не тронут
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        double[] batchXs = xs.clone();
+        double[] batchYs = ys.clone();
+        TabulatedFunctions.sortBatch(batchXs, batchYs);
+        if (batchXs.length == 0) {
+            return;
+        }
+
+        int newCount = pointsCount + batchXs.length;
+        FunctionPoint[] merged = new FunctionPoint[Math.max(points.length, newCount + 2)];
+        int i = 0;
+        int j = 0;
+        int w = 0;
+        while (j < batchXs.length) {
+            // Достаточно сравнивать только текущие точки обеих последовательностей:
+            // совпадения внутри набора уже исключены сортировкой
+            if (i < pointsCount && Math.abs(points[i].getX() - batchXs[j]) < 1e-10) {
+                throw new InappropriateFunctionPointException("Точка с x=" + batchXs[j] + " уже существует в функции");
+            }
+            if (i < pointsCount && points[i].getX() < batchXs[j]) {
+                merged[w++] = points[i++];
+            } else {
+                merged[w++] = new FunctionPoint(batchXs[j], batchYs[j]);
+                j++;
+            }
+        }
+        System.arraycopy(points, i, merged, w, pointsCount - i);
+
+        points = merged;
+        pointsCount = newCount;
+        modCount++;
+        uniform = false;  // Новые точки нарушают равный шаг сетки
+    }
+
+    // ЗАМЕНА ВСЕХ ТОЧЕК
+
+    // Один проход: объекты точек переиспользуются, массив пересоздается, только если не хватает емкости
+    public void setPoints(double[] xs, double[] ys) {
+        TabulatedFunctions.checkPoints(xs, ys);
+        int newCount = xs.length;
+        if (newCount > points.length) {
+            FunctionPoint[] grown = new FunctionPoint[newCount + 2];
+            System.arraycopy(points, 0, grown, 0, pointsCount);
+            points = grown;
+            if (FunctionMetrics.ENABLED) {
+                FunctionMetrics.recordArrayGrowth(metrics);
+            }
+        }
+        for (int i = 0; i < newCount; i++) {
+            if (i < pointsCount) {
+                points[i].setX(xs[i]);
+                points[i].setY(ys[i]);
+            } else {
+                points[i] = new FunctionPoint(xs[i], ys[i]);
+            }
+        }
+        for (int i = newCount; i < pointsCount; i++) {
+            points[i] = null;
+        }
+        pointsCount = newCount;
+        uniform = false;
+        lastSegmentIndex = 0;
+        modCount++;
+    }
+
+    // УПРОЩЕНИЕ
+
+    // Удаляет лишние узлы (см. TabulatedFunction.simplify) одним проходом: оставленные
+    // точки переписываются к началу массива, каждая сдвигается не больше одного раза
+    public void simplify(double maxError) {
+        double[] xs = new double[pointsCount];
+        double[] ys = new double[pointsCount];
+        for (int i = 0; i < pointsCount; i++) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        boolean[] keep = TabulatedFunctions.simplificationMask(xs, ys, pointsCount, maxError);
+
+        int count = 0;
+        for (int i = 0; i < pointsCount; i++) {
+            if (keep[i]) {
+                points[count++] = points[i];
+            }
+        }
+        if (count == pointsCount) {
+            return;
+        }
+        pointsCount = count;
+        uniform = false;  // удалены внутренние узлы
+        lastSegmentIndex = 0;
+        modCount++;
+    }
+
+    // ОБХОД ТОЧЕК
+
+    // Курсор читает массив точек напрямую, без проверки номера на каждом шаге
+    public FunctionPointCursor cursor(int index) {
+        return new IndexPointCursor(index, pointsCount, modCount) {
+            int pointsCount() {
+                return pointsCount;
+            }
+
+            int modCount() {
+                return modCount;
+            }
+
+            double x(int i) {
+                return points[i].getX();
+            }
+
+            double y(int i) {
+                return points[i].getY();
+            }
+        };
+    }
+
     // Строковое представление функции
     public String toString() {
         StringBuilder result = new StringBuilder();
@@ -0,0 +1,327 @@
+package functions;
+
+import java.util.Spliterator;
+import java.util.function.DoubleUnaryOperator;
+
+//Декоратор, запоминающий значения getFunctionValue для повторяющихся аргументов.
+//Значения хранятся в хеш-таблице с открытой адресацией (ключ - биты double, без упаковки в объекты),
+//размер таблицы ограничен, при заполнении запись вытесняется алгоритмом CLOCK.
+//Изменения через декоратор сбрасывают только значения на затронутых отрезках.
+//Функцию нужно менять только через декоратор, иначе таблица устареет. Класс не потокобезопасен
+public class CachingTabulatedFunction implements TabulatedFunction {
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final TabulatedFunction function;  // Оборачиваемая функция
+    private final int maxEntries;              // Сколько значений хранится одновременно
+
+    // Хеш-таблица: размер - степень двойки, заполнена не больше чем наполовину
+    private long[] keys;                       // Биты аргумента (Double.doubleToLongBits)
+    private double[] values;                   // Значение функции для аргумента
+    private boolean[] used;                    // Ячейка занята
+    private boolean[] referenced;              // Значение запрашивалось после последнего прохода стрелки CLOCK
+    private final int mask;
+    private final int shift;                   // 64 - log2(размер таблицы), для мультипликативного хеша
+    private int size;
+    private int hand;                          // Стрелка CLOCK - ячейка, с которой ищется вытесняемая запись
+
+    private long hitCount;
+    private long missCount;
+
+    // КОНСТРУКТОРЫ:
+    public CachingTabulatedFunction(TabulatedFunction function) {
+        this(function, DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachingTabulatedFunction(TabulatedFunction function, int maxEntries) throws IllegalArgumentException {
+        if (function == null) {
+            throw new IllegalArgumentException("Функция не может быть null");
+        }
+        if (maxEntries < 1 || maxEntries > 1 << 29) {
+            throw new IllegalArgumentException("Размер кэша должен быть от 1 до 2^29: " + maxEntries);
+        }
+        this.function = function;
+        this.maxEntries = maxEntries;
+
+        int capacity = Integer.highestOneBit(maxEntries) << 1;
+        if (capacity < maxEntries * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.values = new double[capacity];
+        this.used = new boolean[capacity];
+        this.referenced = new boolean[capacity];
+        this.mask = capacity - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    // СТАТИСТИКА КЭША
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public int getCacheSize() {
+        return size;
+    }
+
+    public int getMaxCacheSize() {
+        return maxEntries;
+    }
+
+    // Сбрасывает все запомненные значения (счетчики сохраняются)
+    public void clearCache() {
+        for (int i = 0; i <= mask; i++) {
+            used[i] = false;
+            referenced[i] = false;
+        }
+        size = 0;
+        hand = 0;
+    }
+
+    public void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    // ВЫЧИСЛЕНИЕ ЗНАЧЕНИЙ
+    public double getFunctionValue(double x) {
+        if (Double.isNaN(x)) {
+            return function.getFunctionValue(x);
+        }
+        long key = Double.doubleToLongBits(x);
+        int slot = find(key);
+        if (slot >= 0) {
+            hitCount++;
+            referenced[slot] = true;
+            return values[slot];
+        }
+        missCount++;
+        double y = function.getFunctionValue(x);
+        put(key, y);
+        return y;
+    }
+
+    public double getLeftDomainBorder() {
+        return function.getLeftDomainBorder();
+    }
+
+    public double getRightDomainBorder() {
+        return function.getRightDomainBorder();
+    }
+
+    // ЧТЕНИЕ ТОЧЕК - без изменений передается функции
+    public int getPointsCount() {
+        return function.getPointsCount();
+    }
+
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPoint(index);
+    }
+
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPoint(index, reuse);
+    }
+
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPointX(index);
+    }
+
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPointY(index);
+    }
+
+    public FunctionPointCursor cursor(int index) {
+        return function.cursor(index);
+    }
+
+    public Spliterator<FunctionPoint> spliterator() {
+        return function.spliterator();
+    }
+
+    public TabulatedFunction freeze() {
+        return function.freeze();
+    }
+
+    // ИЗМЕНЕНИЕ ТОЧЕК: сначала меняется функция (она же проверяет аргументы),
+    // затем сбрасываются значения на отрезках, прилегающих к измененным точкам
+    public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        double oldX = function.getPointX(index);
+        function.setPoint(index, point);
+        invalidateAround(index, oldX);
+    }
+
+    public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        double oldX = function.getPointX(index);
+        function.setPointX(index, x);
+        invalidateAround(index, oldX);
+    }
+
+    public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        function.setPointY(index, y);
+        invalidateAround(index, function.getPointX(index));
+    }
+
+    public void deletePoint(int index) throws IllegalStateException, FunctionPointIndexOutOfBoundsException {
+        int count = function.getPointsCount();
+        double low = function.getPointX(Math.max(index - 1, 0));
+        double high = function.getPointX(Math.min(index + 1, count - 1));
+        function.deletePoint(index);
+        invalidate(low, high);
+    }
+
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        function.addPoint(point);
+        invalidateAround(indexOf(point.getX()), point.getX());
+    }
+
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        function.addPoints(xs, ys);
+        if (xs.length == 0) {
+            return;
+        }
+        double min = xs[0];
+        double max = xs[0];
+        for (double x : xs) {
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+        }
+        int count = function.getPointsCount();
+        invalidate(function.getPointX(Math.max(indexOf(min) - 1, 0)),
+                function.getPointX(Math.min(indexOf(max) + 1, count - 1)));
+    }
+
+    // Массовые изменения меняют все значения сразу
+    public void setPoints(double[] xs, double[] ys) {
+        function.setPoints(xs, ys);
+        clearCache();
+    }
+
+    public void simplify(double maxError) {
+        function.simplify(maxError);
+        clearCache();
+    }
+
+    public void mapY(DoubleUnaryOperator operator) {
+        function.mapY(operator);
+        clearCache();
+    }
+
+    public void fillY(DoubleUnaryOperator function) {
+        this.function.fillY(function);
+        clearCache();
+    }
+
+    // Сбрасывает значения на отрезках слева и справа от точки index, а также между
+    // ее прежней абсциссой oldX и новой (когда сдвигается крайняя точка, меняется область определения)
+    private void invalidateAround(int index, double oldX) {
+        int count = function.getPointsCount();
+        double low = Math.min(function.getPointX(Math.max(index - 1, 0)), oldX);
+        double high = Math.max(function.getPointX(Math.min(index + 1, count - 1)), oldX);
+        invalidate(low, high);
+    }
+
+    // Номер первой точки с x(i) >= x - 1e-10 (бинарный поиск)
+    private int indexOf(double x) {
+        int low = 0;
+        int high = function.getPointsCount() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (function.getPointX(mid) < x - 1e-10) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // ХЕШ-ТАБЛИЦА
+
+    // Мультипликативный хеш (Фибоначчи): старшие биты произведения
+    private int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    // Ячейка с ключом или -1
+    private int find(long key) {
+        for (int i = hash(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void put(long key, double value) {
+        if (size == maxEntries) {
+            evict();
+        }
+        int i = hash(key);
+        while (used[i]) {
+            i = (i + 1) & mask;
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        referenced[i] = false;  // новая запись еще ни разу не запрашивалась повторно
+        size++;
+    }
+
+    // CLOCK: стрелка идет по ячейкам, снимая отметки обращения; вытесняется первая запись без отметки
+    private void evict() {
+        while (true) {
+            if (used[hand]) {
+                if (!referenced[hand]) {
+                    remove(hand);
+                    return;
+                }
+                referenced[hand] = false;
+            }
+            hand = (hand + 1) & mask;
+        }
+    }
+
+    // Удаление без "надгробий": следующие записи цепочки сдвигаются назад,
+    // если их место по хешу не лежит между освободившейся ячейкой и текущей позицией
+    private void remove(int slot) {
+        int gap = slot;
+        for (int i = (slot + 1) & mask; used[i]; i = (i + 1) & mask) {
+            int home = hash(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                referenced[gap] = referenced[i];
+                gap = i;
+            }
+        }
+        used[gap] = false;
+        referenced[gap] = false;
+        size--;
+    }
+
+    // Сбрасывает значения для аргументов из [low, high] за один просмотр таблицы - O(размера таблицы),
+    // без перестройки: записи удаляются на месте, а после удаления та же ячейка проверяется снова,
+    // потому что в нее могла сдвинуться следующая запись цепочки
+    private void invalidate(double low, double high) {
+        int i = 0;
+        while (i <= mask) {
+            if (used[i] && inRange(keys[i], low, high)) {
+                remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static boolean inRange(long key, double low, double high) {
+        double x = Double.longBitsToDouble(key);
+        return x >= low && x <= high;
+    }
+
+    public String toString() {
+        return function.toString();
+    }
+}
@@ -0,0 +1,485 @@
+package functions;
+
+import java.util.Spliterator;
+
+//Неизменяемая табулированная функция на равномерной сетке, хранящая значения в сжатом виде без потерь.
+//Абсциссы не хранятся: x(i) = leftX + i * step вычисляется так же, как в конструкторах
+//ArrayTabulatedFunction(leftX, rightX, ...). Ординаты разбиты на блоки по BLOCK_SIZE точек, каждый блок
+//сжат отдельно по схеме Gorilla: первое значение записывается целиком (64 бита), для остальных
+//записывается XOR двоичного представления со значением-предсказанием, а у XOR хранятся только значащие
+//биты (между ведущими и хвостовыми нулями). Предсказание - предыдущее значение либо линейная экстраполяция
+//по двум предыдущим (2 * y(i-1) - y(i-2)); для каждого блока выбирается то, что дает меньше бит.
+//Смещение каждого блока в битовом потоке хранится в индексе, поэтому значение функции в точке
+//распаковывает только один блок (не больше BLOCK_SIZE значений) и не зависит от размера таблицы.
+//Все поля final, поэтому объект можно передавать между потоками без синхронизации
+public final class CompressedTabulatedFunction implements TabulatedFunction {
+    private static final int BLOCK_SHIFT = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;  // Количество точек в блоке
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private final double leftX;          // Абсцисса первой точки
+    private final double step;           // Шаг сетки
+    private final int pointsCount;       // Количество точек
+    private final long[] bits;           // Битовый поток блоков (биты идут от старшего к младшему)
+    private final long[] blockOffsets;   // Номер первого бита каждого блока в потоке
+
+    // КОНСТРУКТОРЫ:
+
+    // Равномерная сетка на [leftX, rightX] со значениями values (массив не запоминается)
+    public CompressedTabulatedFunction(double leftX, double rightX, double[] values) throws IllegalArgumentException {
+        this(values, leftX, gridStep(leftX, rightX, values.length));
+    }
+
+    // Сжимает функцию, точки которой стоят на равномерной сетке. Абсциссы должны в точности
+    // (до последнего бита) совпадать с x(0) + i * step, иначе восстановить их без потерь нельзя -
+    // тогда выбрасывается IllegalArgumentException
+    public CompressedTabulatedFunction(TabulatedFunction function) throws IllegalArgumentException {
+        this(TabulatedFunctions.getYs(function), function.getLeftDomainBorder(), gridStep(TabulatedFunctions.getXs(function)));
+    }
+
+    private CompressedTabulatedFunction(double[] values, double leftX, double step) {
+        this.leftX = leftX;
+        this.step = step;
+        this.pointsCount = values.length;
+
+        this.blockOffsets = new long[(pointsCount + BLOCK_MASK) >>> BLOCK_SHIFT];
+        BitWriter writer = new BitWriter(false);
+        for (int block = 0; block < blockOffsets.length; block++) {
+            int from = block << BLOCK_SHIFT;
+            int to = Math.min(from + BLOCK_SIZE, pointsCount);
+
+            // предсказатель выбирается пробным подсчетом бит без записи
+            BitWriter byPrevious = new BitWriter(true);
+            BitWriter byLine = new BitWriter(true);
+            encodeBlock(byPrevious, values, from, to, false);
+            encodeBlock(byLine, values, from, to, true);
+
+            blockOffsets[block] = writer.size;
+            encodeBlock(writer, values, from, to, byLine.size < byPrevious.size);
+        }
+        this.bits = writer.toArray();
+    }
+
+    // Шаг сетки, как в конструкторах ArrayTabulatedFunction(leftX, rightX, ...)
+    private static double gridStep(double leftX, double rightX, int pointsCount) {
+        if (leftX >= rightX) {
+            throw new IllegalArgumentException("Левая граница области не может быть больше или равна правой");
+        }
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+        return (rightX - leftX) / (pointsCount - 1);
+    }
+
+    // Шаг, при котором x(0) + i * step точно воспроизводит все абсциссы. Шаг, вычисленный
+    // конструктором по границам, может отличаться от (x(n-1) - x(0)) / (n-1) на единицу
+    // последнего разряда, поэтому проверяются и соседние значения
+    private static double gridStep(double[] xs) {
+        if (xs.length < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+        int last = xs.length - 1;
+        double estimate = (xs[last] - xs[0]) / last;
+        double[] candidates = {estimate, Math.nextUp(estimate), Math.nextDown(estimate)};
+        for (double candidate : candidates) {
+            if (candidate > 0 && onGrid(xs, candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Точки функции не лежат на равномерной сетке: сжатие без потерь невозможно");
+    }
+
+    private static boolean onGrid(double[] xs, double step) {
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[0] + i * step != xs[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Объем сжатых данных (битовый поток и индекс блоков) в байтах
+    public long getCompressedSize() {
+        return 8L * (bits.length + blockOffsets.length);
+    }
+
+    // СЖАТИЕ И РАСПАКОВКА
+
+    // Записывает значения values[from..to) одного блока. Формат значения после первого:
+    // 0 - совпадает с предсказанием; 10 + биты - значащие биты XOR умещаются в окно предыдущего XOR;
+    // 11 + 6 бит числа ведущих нулей + 6 бит (длина - 1) + биты - новое окно
+    private static void encodeBlock(BitWriter writer, double[] values, int from, int to, boolean byLine) {
+        writer.write(byLine ? 1 : 0, 1);
+        writer.write(Double.doubleToRawLongBits(values[from]), 64);
+
+        int windowLeading = 64;  // окна еще нет: ни один ненулевой XOR в него не попадет
+        int windowTrailing = 0;
+        for (int i = from + 1; i < to; i++) {
+            double prediction = byLine && i - from >= 2 ? 2 * values[i - 1] - values[i - 2] : values[i - 1];
+            long xor = Double.doubleToRawLongBits(values[i]) ^ Double.doubleToRawLongBits(prediction);
+            if (xor == 0) {
+                writer.write(0, 1);
+                continue;
+            }
+            int leading = Long.numberOfLeadingZeros(xor);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (leading >= windowLeading && trailing >= windowTrailing) {
+                writer.write(0b10, 2);
+                writer.write(xor >>> windowTrailing, 64 - windowLeading - windowTrailing);
+            } else {
+                int length = 64 - leading - trailing;
+                writer.write(0b11, 2);
+                writer.write(leading, 6);
+                writer.write(length - 1, 6);
+                writer.write(xor >>> trailing, length);
+                windowLeading = leading;
+                windowTrailing = trailing;
+            }
+        }
+    }
+
+    // Читает n (1..64) бит, начиная с бита position
+    private long read(long position, int n) {
+        int word = (int) (position >>> 6);
+        int offset = (int) position & 63;
+        long value = (bits[word] << offset) >>> (64 - n);
+        if (offset + n > 64) {
+            value |= bits[word + 1] >>> (128 - offset - n);
+        }
+        return value;
+    }
+
+    // Первое значение блока читается напрямую, без распаковки остальных
+    private double firstValue(int block) {
+        return Double.longBitsToDouble(read(blockOffsets[block] + 1, 64));
+    }
+
+    // Последовательная распаковка одного блока: next() возвращает очередное значение
+    private final class BlockDecoder {
+        private long position;
+        private final boolean byLine;
+        private int decoded;             // сколько значений блока уже выдано
+        private double previous;
+        private double beforePrevious;
+        private int windowLeading;
+        private int windowTrailing;
+
+        BlockDecoder(int block) {
+            position = blockOffsets[block];
+            byLine = read(position, 1) == 1;
+            position++;
+        }
+
+        double next() {
+            double value;
+            if (decoded == 0) {
+                value = Double.longBitsToDouble(read(position, 64));
+                position += 64;
+            } else {
+                double prediction = byLine && decoded >= 2 ? 2 * previous - beforePrevious : previous;
+                long xor = 0;
+                if (read(position++, 1) == 1) {
+                    if (read(position++, 1) == 0) {
+                        int length = 64 - windowLeading - windowTrailing;
+                        xor = read(position, length) << windowTrailing;
+                        position += length;
+                    } else {
+                        windowLeading = (int) read(position, 6);
+                        int length = (int) read(position + 6, 6) + 1;
+                        windowTrailing = 64 - windowLeading - length;
+                        position += 12;
+                        xor = read(position, length) << windowTrailing;
+                        position += length;
+                    }
+                }
+                value = Double.longBitsToDouble(Double.doubleToRawLongBits(prediction) ^ xor);
+            }
+            beforePrevious = previous;
+            previous = value;
+            decoded++;
+            return value;
+        }
+
+        // Пропускает count значений
+        void skip(int count) {
+            for (int k = 0; k < count; k++) {
+                next();
+            }
+        }
+    }
+
+    // Распаковывает блок целиком в buffer
+    private void decodeBlock(int block, double[] buffer) {
+        BlockDecoder decoder = new BlockDecoder(block);
+        int count = Math.min(BLOCK_SIZE, pointsCount - (block << BLOCK_SHIFT));
+        for (int k = 0; k < count; k++) {
+            buffer[k] = decoder.next();
+        }
+    }
+
+    private double yAt(int index) {
+        BlockDecoder decoder = new BlockDecoder(index >>> BLOCK_SHIFT);
+        decoder.skip(index & BLOCK_MASK);
+        return decoder.next();
+    }
+
+    private double xAt(int index) {
+        return leftX + index * step;
+    }
+
+    // Растущий битовый поток для сжатия; в режиме подсчета только считает биты
+    private static final class BitWriter {
+        private final boolean counting;
+        private long[] words;
+        private long size;               // количество записанных бит
+
+        BitWriter(boolean counting) {
+            this.counting = counting;
+            this.words = counting ? null : new long[16];
+        }
+
+        // Записывает младшие n (1..64) бит value
+        void write(long value, int n) {
+            if (!counting) {
+                int word = (int) (size >>> 6);
+                int offset = (int) size & 63;
+                if (word + 1 >= words.length) {
+                    long[] grown = new long[words.length * 2];
+                    System.arraycopy(words, 0, grown, 0, words.length);
+                    words = grown;
+                }
+                long masked = n == 64 ? value : value & ((1L << n) - 1);
+                if (offset + n <= 64) {
+                    words[word] |= masked << (64 - offset - n);
+                } else {
+                    words[word] |= masked >>> (offset + n - 64);
+                    words[word + 1] |= masked << (128 - offset - n);
+                }
+            }
+            size += n;
+        }
+
+        // Поток без неиспользованного запаса
+        long[] toArray() {
+            long[] result = new long[(int) ((size + 63) >>> 6)];
+            System.arraycopy(words, 0, result, 0, result.length);
+            return result;
+        }
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ФУНКЦИЕЙ
+
+    public double getLeftDomainBorder() {
+        return leftX;
+    }
+
+    public double getRightDomainBorder() {
+        return xAt(pointsCount - 1);
+    }
+
+    public double getFunctionValue(double x) {
+        // Проверка что x в области определения
+        if (x < leftX || x > xAt(pointsCount - 1)) {
+            return Double.NaN;
+        }
+        int i = findSegmentIndex(x);
+
+        // оба конца отрезка берутся из одного блока; правый конец может быть первым значением следующего
+        BlockDecoder decoder = new BlockDecoder(i >>> BLOCK_SHIFT);
+        decoder.skip(i & BLOCK_MASK);
+        double y1 = decoder.next();
+        double y2 = ((i + 1) & BLOCK_MASK) == 0 ? firstValue((i + 1) >>> BLOCK_SHIFT) : decoder.next();
+        return valueOnSegment(i, x, y1, y2);
+    }
+
+    // Номер отрезка, содержащего x из области определения (сетка равномерная - за O(1))
+    private int findSegmentIndex(double x) {
+        int last = pointsCount - 2;  // номер последнего отрезка
+        int i = (int) ((x - leftX) / step);
+        if (i > last) {
+            i = last;
+        }
+        // Поправка на ошибку округления
+        if (i > 0 && xAt(i) > x) {
+            i--;
+        } else if (i < last && xAt(i + 1) <= x) {
+            i++;
+        }
+        return i;
+    }
+
+    // Значение на отрезке i с привязкой к узлам
+    private double valueOnSegment(int i, double x, double y1, double y2) {
+        double x1 = xAt(i);
+        double x2 = xAt(i + 1);
+        // Проверяем совпадение с концами отрезка (используя машинный эпсилон)
+        if (Math.abs(x - x1) < 1e-10) {
+            return y1;
+        }
+        if (Math.abs(x - x2) < 1e-10) {
+            return y2;
+        }
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+    }
+
+    // Пакетное вычисление: для упорядоченных аргументов каждый блок распаковывается один раз
+    public void getFunctionValues(double[] args, int argsOffset, double[] out, int outOffset, int length) {
+        TabulatedFunctions.checkBatchRange(args, argsOffset, out, outOffset, length);
+        if (!TabulatedFunctions.isSorted(args, argsOffset, length)) {
+            for (int k = 0; k < length; k++) {
+                out[outOffset + k] = getFunctionValue(args[argsOffset + k]);
+            }
+            return;
+        }
+
+        double right = xAt(pointsCount - 1);
+        double[] buffer = new double[BLOCK_SIZE];
+        int bufferBlock = -1;  // номер блока, распакованного в buffer
+        for (int k = 0; k < length; k++) {
+            double x = args[argsOffset + k];
+            if (x < leftX || x > right) {
+                out[outOffset + k] = Double.NaN;
+                continue;
+            }
+            int i = findSegmentIndex(x);
+            int block = i >>> BLOCK_SHIFT;
+            if (block != bufferBlock) {
+                decodeBlock(block, buffer);
+                bufferBlock = block;
+            }
+            int j = i & BLOCK_MASK;
+            double y2 = j == BLOCK_MASK ? firstValue(block + 1) : buffer[j + 1];
+            out[outOffset + k] = valueOnSegment(i, x, buffer[j], y2);
+        }
+    }
+
+    // Параллельное вычисление: функция неизменяема, части массива считаются независимо
+    public double[] evaluateAll(double[] args) {
+        double[] out = new double[args.length];
+        TabulatedFunctions.forEachRange(0, args.length, (from, to) -> getFunctionValues(args, from, out, from, to - from));
+        return out;
+    }
+
+    // Функция уже неизменяема
+    public TabulatedFunction freeze() {
+        return this;
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ТОЧКАМИ:
+
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return new FunctionPoint(xAt(index), yAt(index));
+    }
+
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        if (reuse == null) {
+            return new FunctionPoint(xAt(index), yAt(index));
+        }
+        reuse.setX(xAt(index));
+        reuse.setY(yAt(index));
+        return reuse;
+    }
+
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return xAt(index);
+    }
+
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return yAt(index);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= pointsCount) {
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
+        }
+    }
+
+    // МЕТОДЫ ИЗМЕНЕНИЯ: функция неизменяема, все они выбрасывают исключение
+
+    public void setPoint(int index, FunctionPoint point) {
+        throw new UnsupportedOperationException("Сжатую функцию нельзя изменять");
+    }
+
+    public void setPointX(int index, double x) {
+        throw new UnsupportedOperationException("Сжатую функцию нельзя изменять");
+    }
+
+    public void setPointY(int index, double y) {
+        throw new UnsupportedOperationException("Сжатую функцию нельзя изменять");
+    }
+
+    public void deletePoint(int index) {
+        throw new UnsupportedOperationException("Сжатую функцию нельзя изменять");
+    }
+
+    public void addPoint(FunctionPoint point) {
+        throw new UnsupportedOperationException("Сжатую функцию нельзя изменять");
+    }
+
+    public void addPoints(double[] xs, double[] ys) {
+        throw new UnsupportedOperationException("Сжатую функцию нельзя изменять");
+    }
+
+    public void setPoints(double[] xs, double[] ys) {
+        throw new UnsupportedOperationException("Сжатую функцию нельзя изменять");
+    }
+
+    // ОБХОД ТОЧЕК: функция не меняется, поэтому курсору нечего проверять.
+    // Курсор держит распакованным текущий блок - обход всех точек распаковывает каждый блок один раз
+
+    public FunctionPointCursor cursor(int index) {
+        return new IndexPointCursor(index, pointsCount, 0) {
+            private final double[] buffer = new double[BLOCK_SIZE];
+            private int bufferBlock = -1;
+
+            int pointsCount() {
+                return pointsCount;
+            }
+
+            int modCount() {
+                return 0;
+            }
+
+            double x(int i) {
+                return xAt(i);
+            }
+
+            double y(int i) {
+                int block = i >>> BLOCK_SHIFT;
+                if (block != bufferBlock) {
+                    decodeBlock(block, buffer);
+                    bufferBlock = block;
+                }
+                return buffer[i & BLOCK_MASK];
+            }
+        };
+    }
+
+    public Spliterator<FunctionPoint> spliterator() {
+        return new PointSpliterator(this, 0, pointsCount, Spliterator.IMMUTABLE);
+    }
+
+    // Строковое представление функции
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        BlockDecoder decoder = null;
+        for (int i = 0; i < pointsCount; i++) {
+            if ((i & BLOCK_MASK) == 0) {
+                decoder = new BlockDecoder(i >>> BLOCK_SHIFT);
+            }
+            result.append('(').append(xAt(i)).append(", ").append(decoder.next()).append(')');
+            if (i < pointsCount - 1) {
+                result.append("\n");
+            }
+        }
+        return result.toString();
+    }
+}
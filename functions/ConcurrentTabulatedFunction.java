@@ -0,0 +1,429 @@
+package functions;
+
+import java.util.Spliterator;
+import java.util.function.DoubleUnaryOperator;
+
+//Потокобезопасная табулированная функция с копированием при записи.
+//Точки хранятся в неизменяемом снимке (State), ссылка на который volatile.
+//Чтение берет текущий снимок и никогда не блокируется; изменения выполняются
+//по одному (synchronized), строят новый снимок и публикуют его одной записью ссылки
+public class ConcurrentTabulatedFunction implements TabulatedFunction {
+
+    // Неизменяемый набор точек. Массивы после публикации не меняются
+    private static final class State {
+        private final double[] xs;     // Абсциссы точек (упорядочены по возрастанию)
+        private final double[] ys;     // Ординаты точек
+
+        State(double[] xs, double[] ys) {
+            this.xs = xs;
+            this.ys = ys;
+        }
+    }
+
+    private volatile State state;      // Текущий снимок
+
+    // КОНСТРУКТОРЫ:
+    public ConcurrentTabulatedFunction(double leftX, double rightX, int pointsCount) throws IllegalArgumentException {
+        this(leftX, rightX, new double[checkPointsCount(pointsCount)]);
+    }
+
+    //Вместо количества точек получает значения функции в виде массива
+    public ConcurrentTabulatedFunction(double leftX, double rightX, double[] values) throws IllegalArgumentException {
+        if (leftX >= rightX) {
+            throw new IllegalArgumentException("Левая граница области не может быть больше или равна правой");
+        }
+        checkPointsCount(values.length);
+
+        int pointsCount = values.length;
+        double[] xs = new double[pointsCount];
+        double step = (rightX - leftX) / (pointsCount - 1);
+        for (int i = 0; i < pointsCount; i++) {
+            xs[i] = leftX + i * step;
+        }
+        this.state = new State(xs, values.clone());
+    }
+
+    //Копирует точки другой табулированной функции
+    public ConcurrentTabulatedFunction(TabulatedFunction function) throws IllegalArgumentException {
+        int pointsCount = checkPointsCount(function.getPointsCount());
+        double[] xs = new double[pointsCount];
+        double[] ys = new double[pointsCount];
+        for (int i = 0; i < pointsCount; i++) {
+            xs[i] = function.getPointX(i);
+            ys[i] = function.getPointY(i);
+        }
+        this.state = new State(xs, ys);
+    }
+
+    //Произвольная сетка: абсциссы и ординаты точек в двух массивах (массивы копируются)
+    public ConcurrentTabulatedFunction(double[] xs, double[] ys) throws IllegalArgumentException {
+        TabulatedFunctions.checkPoints(xs, ys);
+        this.state = new State(xs.clone(), ys.clone());
+    }
+
+    //Произвольная сетка, заданная массивом точек
+    public ConcurrentTabulatedFunction(FunctionPoint[] points) throws IllegalArgumentException {
+        this(TabulatedFunctions.xsOf(points), TabulatedFunctions.ysOf(points));
+    }
+
+    private static int checkPointsCount(int pointsCount) {
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+        return pointsCount;
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ФУНКЦИЕЙ
+    public double getLeftDomainBorder() {
+        return state.xs[0];
+    }
+
+    public double getRightDomainBorder() {
+        State current = state;
+        return current.xs[current.xs.length - 1];
+    }
+
+    public double getFunctionValue(double x) {
+        return valueAt(state, x);
+    }
+
+    // Пакетное вычисление: все значения считаются по одному и тому же снимку
+    public void getFunctionValues(double[] args, int argsOffset, double[] out, int outOffset, int length) {
+        TabulatedFunctions.checkBatchRange(args, argsOffset, out, outOffset, length);
+        State current = state;
+        for (int k = 0; k < length; k++) {
+            out[outOffset + k] = valueAt(current, args[argsOffset + k]);
+        }
+    }
+
+    // Параллельное вычисление для больших массивов, тоже по одному снимку
+    public double[] evaluateAll(double[] xs) {
+        State current = state;
+        double[] out = new double[xs.length];
+        TabulatedFunctions.forEachRange(0, xs.length, (from, to) -> {
+            for (int k = from; k < to; k++) {
+                out[k] = valueAt(current, xs[k]);
+            }
+        });
+        return out;
+    }
+
+    // Значение функции по заданному снимку
+    private static double valueAt(State current, double x) {
+        double[] xs = current.xs;
+        double[] ys = current.ys;
+        int last = xs.length - 2;  // номер последнего отрезка
+
+        // Проверка что x в области определения
+        if (x < xs[0] || x > xs[last + 1]) {
+            return Double.NaN;
+        }
+
+        // Бинарный поиск последней точки с x(i) <= x
+        int low = 0;
+        int high = last;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (xs[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        double x1 = xs[low];
+        double x2 = xs[low + 1];
+
+        // Проверяем совпадение с концами отрезка (используя машинный эпсилон)
+        if (Math.abs(x - x1) < 1e-10) {
+            return ys[low];
+        }
+        if (Math.abs(x - x2) < 1e-10) {
+            return ys[low + 1];
+        }
+
+        // Линейная интерполяция
+        return ys[low] + (ys[low + 1] - ys[low]) * (x - x1) / (x2 - x1);
+    }
+
+    // Снимок строится прямо по неизменяемым массивам текущего состояния, без копирования
+    public TabulatedFunction freeze() {
+        State current = state;
+        return new FrozenTabulatedFunction(current.xs, current.ys);
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ТОЧКАМИ:
+    // Каждый метод чтения работает с одним снимком; между двумя вызовами функция может измениться
+
+    public int getPointsCount() {
+        return state.xs.length;
+    }
+
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        State current = state;
+        checkIndex(current, index);
+        return new FunctionPoint(current.xs[index], current.ys[index]);
+    }
+
+    // Обе координаты берутся из одного снимка
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        State current = state;
+        checkIndex(current, index);
+        if (reuse == null) {
+            return new FunctionPoint(current.xs[index], current.ys[index]);
+        }
+        reuse.setX(current.xs[index]);
+        reuse.setY(current.ys[index]);
+        return reuse;
+    }
+
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        State current = state;
+        checkIndex(current, index);
+        return current.xs[index];
+    }
+
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        State current = state;
+        checkIndex(current, index);
+        return current.ys[index];
+    }
+
+    private static void checkIndex(State current, int index) {
+        if (index < 0 || index >= current.xs.length) {
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
+        }
+    }
+
+    // Проверяет, что x помещается между соседями точки index
+    private static void checkOrder(State current, int index, double x) throws InappropriateFunctionPointException {
+        double[] xs = current.xs;
+        if (index > 0 && x <= xs[index - 1] + 1e-10) {
+            throw new InappropriateFunctionPointException("Новый X " + x + " должен быть больше чем " + xs[index - 1] + " (X левого соседа)");
+        }
+        if (index < xs.length - 1 && x >= xs[index + 1] - 1e-10) {
+            throw new InappropriateFunctionPointException("Новый X " + x + " должен быть меньше чем " + xs[index + 1] + " (X правого соседа)");
+        }
+    }
+
+    // МЕТОДЫ ИЗМЕНЕНИЯ: выполняются под блокировкой объекта, читатели ее не ждут.
+    // Копируется только тот массив, который меняется
+
+    public synchronized void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        State current = state;
+        checkIndex(current, index);
+        checkOrder(current, index, point.getX());
+
+        double[] xs = current.xs.clone();
+        double[] ys = current.ys.clone();
+        xs[index] = point.getX();
+        ys[index] = point.getY();
+        state = new State(xs, ys);
+    }
+
+    public synchronized void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        State current = state;
+        checkIndex(current, index);
+        checkOrder(current, index, x);
+
+        double[] xs = current.xs.clone();
+        xs[index] = x;
+        state = new State(xs, current.ys);
+    }
+
+    public synchronized void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        State current = state;
+        checkIndex(current, index);
+
+        double[] ys = current.ys.clone();
+        ys[index] = y;
+        state = new State(current.xs, ys);
+    }
+
+    // Новые ординаты считаются параллельно в отдельный массив и публикуются одним снимком
+    public synchronized void mapY(DoubleUnaryOperator operator) {
+        State current = state;
+        double[] ys = new double[current.ys.length];
+        TabulatedFunctions.forEachRange(0, ys.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                ys[i] = operator.applyAsDouble(current.ys[i]);
+            }
+        });
+        state = new State(current.xs, ys);
+    }
+
+    public synchronized void fillY(DoubleUnaryOperator function) {
+        State current = state;
+        double[] ys = new double[current.ys.length];
+        TabulatedFunctions.forEachRange(0, ys.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                ys[i] = function.applyAsDouble(current.xs[i]);
+            }
+        });
+        state = new State(current.xs, ys);
+    }
+
+    public synchronized void deletePoint(int index) throws IllegalStateException, FunctionPointIndexOutOfBoundsException {
+        State current = state;
+        int pointsCount = current.xs.length;
+        if (pointsCount <= 2) {
+            throw new IllegalStateException("Нельзя удалять точки: минимальное количество точек - 3");
+        }
+        checkIndex(current, index);
+
+        // Новые массивы без точки index
+        double[] xs = new double[pointsCount - 1];
+        double[] ys = new double[pointsCount - 1];
+        System.arraycopy(current.xs, 0, xs, 0, index);
+        System.arraycopy(current.ys, 0, ys, 0, index);
+        System.arraycopy(current.xs, index + 1, xs, index, pointsCount - index - 1);
+        System.arraycopy(current.ys, index + 1, ys, index, pointsCount - index - 1);
+        state = new State(xs, ys);
+    }
+
+    public synchronized void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        State current = state;
+        double[] oldXs = current.xs;
+        int pointsCount = oldXs.length;
+        double x = point.getX();
+
+        // Бинарный поиск первой точки с x(i) >= x - позиции для вставки
+        int low = 0;
+        int high = pointsCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (oldXs[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int insertIndex = low;
+
+        if ((insertIndex < pointsCount && Math.abs(oldXs[insertIndex] - x) < 1e-10)
+                || (insertIndex > 0 && Math.abs(oldXs[insertIndex - 1] - x) < 1e-10)) {
+            throw new InappropriateFunctionPointException("Точка с x=" + x + " уже существует в функции");
+        }
+
+        // Новые массивы с точкой на месте insertIndex
+        double[] xs = new double[pointsCount + 1];
+        double[] ys = new double[pointsCount + 1];
+        System.arraycopy(oldXs, 0, xs, 0, insertIndex);
+        System.arraycopy(current.ys, 0, ys, 0, insertIndex);
+        xs[insertIndex] = x;
+        ys[insertIndex] = point.getY();
+        System.arraycopy(oldXs, insertIndex, xs, insertIndex + 1, pointsCount - insertIndex);
+        System.arraycopy(current.ys, insertIndex, ys, insertIndex + 1, pointsCount - insertIndex);
+        state = new State(xs, ys);
+    }
+
+    // Весь набор попадает в один новый снимок: читатели видят либо все новые точки, либо ни одной
+    public synchronized void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        double[] batchXs = xs.clone();
+        double[] batchYs = ys.clone();
+        TabulatedFunctions.sortBatch(batchXs, batchYs);
+        State current = state;
+        int pointsCount = current.xs.length;
+        TabulatedFunctions.checkBatchConflicts(current.xs, pointsCount, batchXs);
+        if (batchXs.length == 0) {
+            return;
+        }
+
+        double[] newXs = new double[pointsCount + batchXs.length];
+        double[] newYs = new double[pointsCount + batchXs.length];
+        System.arraycopy(current.xs, 0, newXs, 0, pointsCount);
+        System.arraycopy(current.ys, 0, newYs, 0, pointsCount);
+        TabulatedFunctions.mergeBatch(newXs, newYs, pointsCount, batchXs, batchYs);
+        state = new State(newXs, newYs);
+    }
+
+    // Упрощение (см. TabulatedFunction.simplify): оставленные точки публикуются одним новым снимком
+    public synchronized void simplify(double maxError) {
+        State current = state;
+        int pointsCount = current.xs.length;
+        boolean[] keep = TabulatedFunctions.simplificationMask(current.xs, current.ys, pointsCount, maxError);
+
+        int count = 0;
+        for (boolean kept : keep) {
+            if (kept) {
+                count++;
+            }
+        }
+        if (count == pointsCount) {
+            return;
+        }
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        int k = 0;
+        for (int i = 0; i < pointsCount; i++) {
+            if (keep[i]) {
+                xs[k] = current.xs[i];
+                ys[k] = current.ys[i];
+                k++;
+            }
+        }
+        state = new State(xs, ys);
+    }
+
+    // Замена всех точек одним новым снимком
+    public synchronized void setPoints(double[] xs, double[] ys) {
+        TabulatedFunctions.checkPoints(xs, ys);
+        state = new State(xs.clone(), ys.clone());
+    }
+
+    // Пакет запоминает снимок на момент открытия и применяется под монитором функции:
+    // если другой поток успел изменить функцию, commit() отказывает, а не затирает его изменение
+    public FunctionEditBatch edit() {
+        return new FunctionEditBatch(this, this, state);
+    }
+
+    // Текущий снимок - для сравнения со снимком, при котором открыт пакет изменений
+    Object snapshot() {
+        return state;
+    }
+
+    // ОБХОД ТОЧЕК: курсор идет по снимку, взятому при его создании, и не замечает
+    // последующих изменений (как итератор CopyOnWriteArrayList)
+
+    public FunctionPointCursor cursor(int index) {
+        State current = state;
+        return new IndexPointCursor(index, current.xs.length, 0) {
+            int pointsCount() {
+                return current.xs.length;
+            }
+
+            int modCount() {
+                return 0;
+            }
+
+            double x(int i) {
+                return current.xs[i];
+            }
+
+            double y(int i) {
+                return current.ys[i];
+            }
+        };
+    }
+
+    // Все части разделенного обхода должны читать один снимок, поэтому обход идет по freeze()
+    public Spliterator<FunctionPoint> spliterator() {
+        return freeze().spliterator();
+    }
+
+    // Строковое представление функции по одному снимку
+    public String toString() {
+        State current = state;
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < current.xs.length; i++) {
+            result.append('(').append(current.xs[i]).append(", ").append(current.ys[i]).append(')');
+            if (i < current.xs.length - 1) {
+                result.append("\n");
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package functions;
+
+import java.util.Spliterator;
+
+//Неизменяемый снимок табулированной функции (результат TabulatedFunction.freeze()).
+//Для каждого отрезка заранее вычислен наклон прямой y = y(i) + k * (x - x(i)),
+//поэтому значение - это поиск отрезка и одно умножение со сложением (Math.fma).
+//Прямая отсчитывается от левого узла, а не от нуля: иначе при больших x свободный член
+//теряет точность и снимок расходится с исходной функцией
+//Все поля final, поэтому объект можно передавать между потоками без синхронизации
+public final class FrozenTabulatedFunction implements TabulatedFunction {
+    private final double[] xs;          // Абсциссы точек (упорядочены по возрастанию)
+    private final double[] ys;          // Ординаты точек
+    private final double[] slopes;      // Наклон k(i) отрезка [x(i), x(i+1)]
+    private final boolean uniform;      // Точки стоят с равным шагом - номер отрезка вычисляется за O(1)
+    private final double uniformStep;   // Шаг равномерной сетки
+
+    // Копирует точки функции
+    public FrozenTabulatedFunction(TabulatedFunction function) {
+        this(copyXs(function), copyYs(function));
+    }
+
+    // Принимает массивы во владение: вызывающий не должен их больше менять
+    FrozenTabulatedFunction(double[] xs, double[] ys) {
+        if (xs.length < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+        this.xs = xs;
+        this.ys = ys;
+
+        int segmentsCount = xs.length - 1;
+        this.slopes = new double[segmentsCount];
+        for (int i = 0; i < segmentsCount; i++) {
+            slopes[i] = (ys[i + 1] - ys[i]) / (xs[i + 1] - xs[i]);
+        }
+
+        // Сетка считается равномерной, если узлы отличаются от x(0) + i * step
+        // много меньше шага: тогда вычисленный номер отрезка ошибается не больше чем на один
+        double step = (xs[segmentsCount] - xs[0]) / segmentsCount;
+        boolean sameStep = true;
+        for (int i = 1; i < segmentsCount && sameStep; i++) {
+            sameStep = Math.abs(xs[i] - (xs[0] + i * step)) <= step * 1e-9;
+        }
+        this.uniform = sameStep;
+        this.uniformStep = step;
+    }
+
+    private static double[] copyXs(TabulatedFunction function) {
+        double[] xs = new double[function.getPointsCount()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = function.getPointX(i);
+        }
+        return xs;
+    }
+
+    private static double[] copyYs(TabulatedFunction function) {
+        double[] ys = new double[function.getPointsCount()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = function.getPointY(i);
+        }
+        return ys;
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ФУНКЦИЕЙ
+    public double getLeftDomainBorder() {
+        return xs[0];
+    }
+
+    public double getRightDomainBorder() {
+        return xs[xs.length - 1];
+    }
+
+    public double getFunctionValue(double x) {
+        // Проверка что x в области определения
+        if (x < xs[0] || x > xs[xs.length - 1]) {
+            return Double.NaN;
+        }
+        return valueOnSegment(findSegmentIndex(x), x);
+    }
+
+    // Номер отрезка, содержащего x из области определения
+    private int findSegmentIndex(double x) {
+        int last = xs.length - 2;  // номер последнего отрезка
+        if (uniform) {
+            int i = (int) ((x - xs[0]) / uniformStep);
+            if (i > last) {
+                i = last;
+            }
+            // Поправка на ошибку округления
+            if (i > 0 && xs[i] > x) {
+                i--;
+            } else if (i < last && xs[i + 1] <= x) {
+                i++;
+            }
+            return i;
+        }
+
+        // Бинарный поиск последней точки с x(i) <= x
+        int low = 0;
+        int high = last;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (xs[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // Пакетное вычисление: для упорядоченных аргументов отрезки перебираются одним проходом
+    public void getFunctionValues(double[] args, int argsOffset, double[] out, int outOffset, int length) {
+        TabulatedFunctions.checkBatchRange(args, argsOffset, out, outOffset, length);
+        if (!TabulatedFunctions.isSorted(args, argsOffset, length)) {
+            for (int k = 0; k < length; k++) {
+                out[outOffset + k] = getFunctionValue(args[argsOffset + k]);
+            }
+            return;
+        }
+
+        double left = xs[0];
+        double right = xs[xs.length - 1];
+        int last = xs.length - 2;
+        int i = -1;  // отрезок первого аргумента ищется поиском, дальше только движение вперед
+        for (int k = 0; k < length; k++) {
+            double x = args[argsOffset + k];
+            if (x < left || x > right) {
+                out[outOffset + k] = Double.NaN;
+                continue;
+            }
+            if (i < 0) {
+                i = findSegmentIndex(x);
+            }
+            while (i < last && xs[i + 1] <= x) {
+                i++;
+            }
+            out[outOffset + k] = valueOnSegment(i, x);
+        }
+    }
+
+    // Параллельное вычисление: снимок неизменяем, части массива считаются независимо
+    public double[] evaluateAll(double[] args) {
+        double[] out = new double[args.length];
+        TabulatedFunctions.forEachRange(0, args.length, (from, to) -> getFunctionValues(args, from, out, from, to - from));
+        return out;
+    }
+
+    // Значение на отрезке i с привязкой к узлам
+    private double valueOnSegment(int i, double x) {
+        // Проверяем совпадение с концами отрезка (используя машинный эпсилон)
+        if (Math.abs(x - xs[i]) < 1e-10) {
+            return ys[i];
+        }
+        if (Math.abs(x - xs[i + 1]) < 1e-10) {
+            return ys[i + 1];
+        }
+        return Math.fma(slopes[i], x - xs[i], ys[i]);
+    }
+
+    // Снимок уже неизменяем
+    public TabulatedFunction freeze() {
+        return this;
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ТОЧКАМИ:
+
+    public int getPointsCount() {
+        return xs.length;
+    }
+
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return new FunctionPoint(xs[index], ys[index]);
+    }
+
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        if (reuse == null) {
+            return new FunctionPoint(xs[index], ys[index]);
+        }
+        reuse.setX(xs[index]);
+        reuse.setY(ys[index]);
+        return reuse;
+    }
+
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= xs.length) {
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
+        }
+    }
+
+    // МЕТОДЫ ИЗМЕНЕНИЯ: снимок неизменяем, все они выбрасывают исключение
+
+    public void setPoint(int index, FunctionPoint point) {
+        throw new UnsupportedOperationException("Снимок функции нельзя изменять");
+    }
+
+    public void setPointX(int index, double x) {
+        throw new UnsupportedOperationException("Снимок функции нельзя изменять");
+    }
+
+    public void setPointY(int index, double y) {
+        throw new UnsupportedOperationException("Снимок функции нельзя изменять");
+    }
+
+    public void deletePoint(int index) {
+        throw new UnsupportedOperationException("Снимок функции нельзя изменять");
+    }
+
+    public void addPoint(FunctionPoint point) {
+        throw new UnsupportedOperationException("Снимок функции нельзя изменять");
+    }
+
+    public void addPoints(double[] xs, double[] ys) {
+        throw new UnsupportedOperationException("Снимок функции нельзя изменять");
+    }
+
+    public void setPoints(double[] xs, double[] ys) {
+        throw new UnsupportedOperationException("Снимок функции нельзя изменять");
+    }
+
+    // ОБХОД ТОЧЕК: снимок не меняется, поэтому курсору нечего проверять
+
+    public FunctionPointCursor cursor(int index) {
+        return new IndexPointCursor(index, xs.length, 0) {
+            int pointsCount() {
+                return xs.length;
+            }
+
+            int modCount() {
+                return 0;
+            }
+
+            double x(int i) {
+                return xs[i];
+            }
+
+            double y(int i) {
+                return ys[i];
+            }
+        };
+    }
+
+    public Spliterator<FunctionPoint> spliterator() {
+        return new PointSpliterator(this, 0, xs.length, Spliterator.IMMUTABLE);
+    }
+
+    // Строковое представление функции
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < xs.length; i++) {
+            result.append('(').append(xs[i]).append(", ").append(ys[i]).append(')');
+            if (i < xs.length - 1) {
+                result.append("\n");
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package functions;
+
+// Функция одной переменной, заданная на отрезке [getLeftDomainBorder(), getRightDomainBorder()].
+// Общий тип табулированных функций и составленных из них выражений (см. пакет functions.meta)
+public interface Function {
+    double getLeftDomainBorder();
+
+    double getRightDomainBorder();
+
+    // Значение в точке x (NaN вне области определения)
+    double getFunctionValue(double x);
+
+    // Вычисляет значения функции сразу для массива точек: out[i] = f(xs[i])
+    default void getFunctionValues(double[] xs, double[] out) {
+        getFunctionValues(xs, 0, out, 0, xs.length);
+    }
+
+    // То же для части массива: out[outOffset + i] = f(xs[xsOffset + i]), i = 0..length-1.
+    // Реализации переопределяют метод, чтобы для упорядоченных xs обойти точки функции один раз
+    default void getFunctionValues(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        TabulatedFunctions.checkBatchRange(xs, xsOffset, out, outOffset, length);
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = getFunctionValue(xs[xsOffset + i]);
+        }
+    }
+}
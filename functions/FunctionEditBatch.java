@@ -0,0 +1,325 @@
+package functions;
+
+//Пакет изменений табулированной функции (см. TabulatedFunction.edit()).
+//Изменения только запоминаются, а commit() применяет их все сразу: строит итоговый набор точек
+//одним проходом по исходным точкам со слиянием упорядоченных добавляемых точек, один раз проверяет
+//порядок абсцисс и заменяет точки функции за O(n + k log k), k - число добавляемых точек.
+//Номера точек в setPoint, setPointX, setPointY и deletePoint - номера в функции на момент открытия
+//пакета: удаления и добавления внутри пакета их не сдвигают. Повторное изменение той же точки
+//заменяет предыдущее. Если хоть одна точка нарушает порядок, commit() выбрасывает одно
+//InappropriateFunctionPointException со всеми такими точками, и функция не меняется.
+//Пока пакет открыт, функцию нельзя менять в обход него. Класс не потокобезопасен.
+//Пакет ConcurrentTabulatedFunction запоминает ее снимок при открытии и применяется под ее монитором:
+//если функцию изменили в обход пакета, commit() выбрасывает IllegalStateException
+public final class FunctionEditBatch {
+    private static final byte CHANGED_X = 1;
+    private static final byte CHANGED_Y = 2;
+    private static final byte DELETED = 4;
+    private static final int MESSAGE_POINTS_LIMIT = 10;   // сколько точек перечислять в сообщении исключения
+
+    private final TabulatedFunction function;
+    private final int pointsCount;     // Количество точек функции при открытии пакета
+    private final ConcurrentTabulatedFunction concurrent;  // Функция, если ее можно менять из других потоков
+    private final Object openedSnapshot;                    // Ее снимок при открытии пакета
+    private byte[] changes;            // Изменения точки с каждым номером (создаются при первом изменении)
+    private double[] newXs;            // Новые абсциссы точек с флагом CHANGED_X
+    private double[] newYs;            // Новые ординаты точек с флагом CHANGED_Y
+    private int deletedCount;          // Сколько точек помечено к удалению
+    private double[] addedXs = new double[0];  // Добавляемые точки в порядке добавления
+    private double[] addedYs = new double[0];
+    private int addedCount;
+    private boolean committed;
+
+    FunctionEditBatch(TabulatedFunction function) {
+        this(function, null, null);
+    }
+
+    FunctionEditBatch(TabulatedFunction function, ConcurrentTabulatedFunction concurrent, Object openedSnapshot) {
+        this.function = function;
+        this.pointsCount = function.getPointsCount();
+        this.concurrent = concurrent;
+        this.openedSnapshot = openedSnapshot;
+    }
+
+    // ИЗМЕНЕНИЯ
+
+    public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        change(index, CHANGED_X | CHANGED_Y);
+        newXs[index] = point.getX();
+        newYs[index] = point.getY();
+    }
+
+    public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException {
+        change(index, CHANGED_X);
+        newXs[index] = x;
+    }
+
+    public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        change(index, CHANGED_Y);
+        newYs[index] = y;
+    }
+
+    public void deletePoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        change(index, DELETED);
+        deletedCount++;
+    }
+
+    public void addPoint(FunctionPoint point) {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        checkOpen();
+        if (addedCount == addedXs.length) {
+            int capacity = Math.max(16, addedCount * 2);
+            double[] grownXs = new double[capacity];
+            double[] grownYs = new double[capacity];
+            System.arraycopy(addedXs, 0, grownXs, 0, addedCount);
+            System.arraycopy(addedYs, 0, grownYs, 0, addedCount);
+            addedXs = grownXs;
+            addedYs = grownYs;
+        }
+        addedXs[addedCount] = point.getX();
+        addedYs[addedCount] = point.getY();
+        addedCount++;
+    }
+
+    // Отмечает изменение точки index; удаленную в пакете точку менять нельзя
+    private void change(int index, int flags) {
+        checkOpen();
+        if (index < 0 || index >= pointsCount) {
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
+        }
+        if (changes == null) {
+            changes = new byte[pointsCount];
+            newXs = new double[pointsCount];
+            newYs = new double[pointsCount];
+        }
+        if ((changes[index] & DELETED) != 0) {
+            throw new IllegalStateException("Точка с индексом " + index + " уже удалена в этом пакете");
+        }
+        changes[index] |= (byte) flags;
+    }
+
+    private void checkOpen() {
+        if (committed) {
+            throw new IllegalStateException("Пакет изменений уже применен");
+        }
+    }
+
+    // ПРИМЕНЕНИЕ
+
+    // Применяет все изменения сразу или, если какие-то точки нарушают порядок абсцисс, не применяет ни одного.
+    // После успешного применения пакет закрыт
+    public void commit() throws InappropriateFunctionPointException {
+        checkOpen();
+        if (concurrent == null) {
+            apply();
+            return;
+        }
+        // проверка снимка, чтение точек и публикация результата - без записей других потоков между ними
+        synchronized (concurrent) {
+            if (concurrent.snapshot() != openedSnapshot) {
+                throw new IllegalStateException("Функция изменилась после открытия пакета изменений");
+            }
+            apply();
+        }
+    }
+
+    private void apply() throws InappropriateFunctionPointException {
+        if (function.getPointsCount() != pointsCount) {
+            throw new IllegalStateException("Функция изменилась после открытия пакета изменений");
+        }
+        if (changes == null && addedCount == 0) {
+            committed = true;
+            return;
+        }
+        int newCount = pointsCount - deletedCount + addedCount;
+        if (newCount < 2) {
+            throw new IllegalStateException("Нельзя удалять точки: в функции должно остаться не меньше двух точек");
+        }
+
+        // исходные точки читаются курсором - одним проходом по хранилищу функции
+        double[] xs = new double[pointsCount];
+        double[] ys = new double[pointsCount];
+        FunctionPointCursor cursor = function.cursor();
+        for (int i = 0; cursor.hasNext(); i++) {
+            cursor.next();
+            xs[i] = cursor.getX();
+            ys[i] = cursor.getY();
+        }
+
+        // добавляемые точки упорядочиваются устойчиво, поэтому равные x сохраняют порядок добавления
+        int keptCount = pointsCount - deletedCount;
+        double[] batchXs = new double[addedCount];
+        double[] batchYs = new double[addedCount];
+        System.arraycopy(addedXs, 0, batchXs, 0, addedCount);
+        System.arraycopy(addedYs, 0, batchYs, 0, addedCount);
+        TabulatedFunctions.sortPairs(batchXs, batchYs);
+
+        // оставшиеся исходные точки с новыми координатами в порядке номеров
+        double[] keptXs = new double[keptCount];
+        double[] keptYs = new double[keptCount];
+        boolean[] keptTouched = new boolean[keptCount];  // точка изменена в пакете
+        int w = 0;
+        for (int i = nextKept(0); i < pointsCount; i = nextKept(i + 1)) {
+            int flags = changes == null ? 0 : changes[i];
+            keptXs[w] = (flags & CHANGED_X) != 0 ? newXs[i] : xs[i];
+            keptYs[w] = (flags & CHANGED_Y) != 0 ? newYs[i] : ys[i];
+            keptTouched[w] = flags != 0;
+            w++;
+        }
+
+        // как и при setPointX, каждая исходная точка должна остаться между соседями
+        boolean[] keptOffending = new boolean[keptCount];
+        int offendingCount = checkOrder(keptXs, keptTouched, keptOffending, 0);
+        if (offendingCount > 0) {
+            offendingCount = checkBounds(keptXs, keptTouched, keptOffending, offendingCount);
+            throw orderViolation(keptXs, keptYs, keptOffending, offendingCount,
+                    batchXs, batchYs, checkAdded(keptXs, batchXs, keptOffending));
+        }
+
+        // слияние двух упорядоченных последовательностей и единственная проверка соседей итогового набора
+        double[] resultXs = new double[newCount];
+        double[] resultYs = new double[newCount];
+        boolean[] touched = new boolean[newCount];  // точка изменена или добавлена в пакете
+        int i = 0;
+        int j = 0;
+        for (w = 0; w < newCount; w++) {
+            if (j < addedCount && (i == keptCount || batchXs[j] < keptXs[i])) {
+                resultXs[w] = batchXs[j];
+                resultYs[w] = batchYs[j++];
+                touched[w] = true;
+            } else {
+                resultXs[w] = keptXs[i];
+                resultYs[w] = keptYs[i];
+                touched[w] = keptTouched[i++];
+            }
+        }
+        boolean[] offending = new boolean[newCount];
+        offendingCount = checkOrder(resultXs, touched, offending, 0);
+        if (offendingCount > 0) {
+            throw orderViolation(resultXs, resultYs, offending, offendingCount, batchXs, batchYs, new boolean[addedCount]);
+        }
+
+        function.setPoints(resultXs, resultYs);
+        committed = true;
+    }
+
+    // Отмечает измененные точки каждой пары соседей, стоящих не по возрастанию с шагом больше 1e-10.
+    // Неизмененные точки упорядочены, поэтому в нарушении виновата измененная точка пары.
+    // Возвращает, сколько точек отмечено впервые (вместе с уже отмеченными count)
+    private static int checkOrder(double[] xs, boolean[] touched, boolean[] offending, int count) {
+        for (int w = 0; w + 1 < xs.length; w++) {
+            if (!(xs[w + 1] > xs[w] + 1e-10)) {
+                if (touched[w] && !offending[w]) {
+                    offending[w] = true;
+                    count++;
+                }
+                if (touched[w + 1] && !offending[w + 1]) {
+                    offending[w + 1] = true;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Точка, уехавшая дальше соседней, может оказаться в порядке с соседями, которые уехали вместе с ней.
+    // Поэтому при ошибке каждая измененная точка еще сверяется с ближайшими неизмененными слева и справа
+    private static int checkBounds(double[] xs, boolean[] touched, boolean[] offending, int count) {
+        double[] rightBounds = new double[xs.length];
+        double bound = Double.POSITIVE_INFINITY;
+        for (int w = xs.length - 1; w >= 0; w--) {
+            rightBounds[w] = bound;
+            if (!touched[w]) {
+                bound = xs[w];
+            }
+        }
+        bound = Double.NEGATIVE_INFINITY;
+        for (int w = 0; w < xs.length; w++) {
+            if (!touched[w]) {
+                bound = xs[w];
+            } else if (!offending[w] && !(xs[w] > bound + 1e-10 && xs[w] < rightBounds[w] - 1e-10)) {
+                offending[w] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Когда сами исходные точки стоят не по порядку, слияние невозможно: добавляемые точки
+    // сверяются с упорядоченной копией правильно стоящих исходных точек, O(n log n) только при ошибке
+    private static boolean[] checkAdded(double[] keptXs, double[] batchXs, boolean[] keptOffending) {
+        int count = 0;
+        for (boolean bad : keptOffending) {
+            if (!bad) {
+                count++;
+            }
+        }
+        double[] valid = new double[count];
+        double[] unused = new double[count];
+        int k = 0;
+        for (int w = 0; w < keptXs.length; w++) {
+            if (!keptOffending[w]) {
+                valid[k++] = keptXs[w];
+            }
+        }
+        TabulatedFunctions.sortPairs(valid, unused);
+
+        boolean[] addedOffending = new boolean[batchXs.length];
+        int i = 0;
+        for (int j = 0; j < batchXs.length; j++) {
+            double x = batchXs[j];
+            while (i < count && valid[i] <= x - 1e-10) {
+                i++;
+            }
+            boolean collides = i < count && Math.abs(valid[i] - x) < 1e-10
+                    || j > 0 && x - batchXs[j - 1] < 1e-10
+                    || j + 1 < batchXs.length && batchXs[j + 1] - x < 1e-10;
+            addedOffending[j] = collides || Double.isNaN(x);
+        }
+        return addedOffending;
+    }
+
+    // Номер первой неудаленной исходной точки, начиная с index (pointsCount, если таких нет)
+    private int nextKept(int index) {
+        while (index < pointsCount && changes != null && (changes[index] & DELETED) != 0) {
+            index++;
+        }
+        return index;
+    }
+
+    private static InappropriateFunctionPointException orderViolation(double[] xs, double[] ys, boolean[] offending, int count,
+                                                                      double[] batchXs, double[] batchYs, boolean[] batchOffending) {
+        for (boolean bad : batchOffending) {
+            if (bad) {
+                count++;
+            }
+        }
+        FunctionPoint[] points = new FunctionPoint[count];
+        int k = 0;
+        for (int w = 0; w < xs.length; w++) {
+            if (offending[w]) {
+                points[k++] = new FunctionPoint(xs[w], ys[w]);
+            }
+        }
+        for (int j = 0; j < batchXs.length; j++) {
+            if (batchOffending[j]) {
+                points[k++] = new FunctionPoint(batchXs[j], batchYs[j]);
+            }
+        }
+
+        StringBuilder message = new StringBuilder("Пакет изменений не применен, некорректных точек - ")
+                .append(count).append(" (нарушают порядок абсцисс или совпадают с соседями):");
+        for (int w = 0; w < Math.min(count, MESSAGE_POINTS_LIMIT); w++) {
+            message.append(" (").append(points[w].getX()).append(", ").append(points[w].getY()).append(')');
+        }
+        if (count > MESSAGE_POINTS_LIMIT) {
+            message.append(" и еще ").append(count - MESSAGE_POINTS_LIMIT);
+        }
+        return new InappropriateFunctionPointException(message.toString(), points);
+    }
+}
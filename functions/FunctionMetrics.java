@@ -0,0 +1,364 @@
+package functions;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+//Счетчики работы табулированных функций: вычисления, выходы из области определения,
+//длины поиска отрезков, попадания в кэши последнего отрезка и узла, рост массивов, исключения.
+//Включаются системным свойством -Dfunctions.metrics=true. ENABLED - static final константа,
+//поэтому при выключенных метриках JIT выбрасывает проверки "if (FunctionMetrics.ENABLED)" целиком.
+//Счетчики - LongAdder (разнесены по ячейкам, потоки не соревнуются за одну переменную).
+//При включенных метриках объект регистрируется в JMX как functions:type=FunctionMetrics.
+//Счетчики общие для всех функций процесса. Чтобы отличать таблицы друг от друга, функции
+//(ArrayTabulatedFunction, PrimitiveArrayTabulatedFunction, LinkedListTabulatedFunction) можно
+//назвать методом setMetricsName: тогда вычисления, поиск отрезков, кэши и рост массивов этой функции
+//дополнительно считаются в счетчиках Table с этим именем (функции с одним именем делят счетчики)
+public final class FunctionMetrics implements FunctionMetricsMBean {
+    public static final boolean ENABLED = Boolean.getBoolean("functions.metrics");
+
+    public static final String OBJECT_NAME = "functions:type=FunctionMetrics";
+
+    private static final LongAdder evaluations = new LongAdder();
+    private static final LongAdder outOfDomain = new LongAdder();
+    private static final Histogram evaluationLatency = new Histogram();
+    private static final Histogram searchLength = new Histogram();
+    private static final LongAdder segmentCacheHits = new LongAdder();
+    private static final LongAdder segmentCacheMisses = new LongAdder();
+    private static final LongAdder nodeCacheHits = new LongAdder();
+    private static final LongAdder nodeCacheMisses = new LongAdder();
+    private static final LongAdder arrayGrowths = new LongAdder();
+    private static final LongAdder inappropriatePointExceptions = new LongAdder();
+    private static final LongAdder indexOutOfBoundsExceptions = new LongAdder();
+
+    private static final ConcurrentHashMap<String, Table> tables = new ConcurrentHashMap<>();
+
+    private static final FunctionMetrics INSTANCE = new FunctionMetrics();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // объект уже зарегистрирован (например, другим загрузчиком классов) - счетчики
+                // продолжают работать и доступны через getInstance()
+            }
+        }
+    }
+
+    // Объекты создаются только для JMX
+    private FunctionMetrics() {
+    }
+
+    public static FunctionMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // Счетчики таблиц с именем name (создаются при первом обращении)
+    public static Table table(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Имя таблицы не может быть null");
+        }
+        return tables.computeIfAbsent(name, Table::new);
+    }
+
+    // ТОЧКИ ЗАПИСИ (вызываются только внутри "if (ENABLED)"); table - счетчики функции или null
+
+    static void recordEvaluation(Table table, long nanos) {
+        evaluations.increment();
+        evaluationLatency.record(nanos);
+        if (table != null) {
+            table.evaluations.increment();
+        }
+    }
+
+    // Аргумент не прошел проверку области определения (NaN в узлах функции сюда не попадает)
+    static void recordOutOfDomain(Table table) {
+        outOfDomain.increment();
+        if (table != null) {
+            table.outOfDomain.increment();
+        }
+    }
+
+    static void recordSearch(Table table, int length) {
+        searchLength.record(length);
+        if (table != null) {
+            table.searches.increment();
+            table.searchSteps.add(length);
+        }
+    }
+
+    static void recordSegmentCache(Table table, boolean hit) {
+        (hit ? segmentCacheHits : segmentCacheMisses).increment();
+        if (table != null) {
+            (hit ? table.cacheHits : table.cacheMisses).increment();
+        }
+    }
+
+    static void recordNodeCache(Table table, boolean hit) {
+        (hit ? nodeCacheHits : nodeCacheMisses).increment();
+        if (table != null) {
+            (hit ? table.cacheHits : table.cacheMisses).increment();
+        }
+    }
+
+    static void recordArrayGrowth(Table table) {
+        arrayGrowths.increment();
+        if (table != null) {
+            table.arrayGrowths.increment();
+        }
+    }
+
+    static void recordInappropriatePoint() {
+        inappropriatePointExceptions.increment();
+    }
+
+    static void recordIndexOutOfBounds() {
+        indexOutOfBoundsExceptions.increment();
+    }
+
+    // ЧТЕНИЕ
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public long getEvaluationCount() {
+        return evaluations.sum();
+    }
+
+    public long getOutOfDomainCount() {
+        return outOfDomain.sum();
+    }
+
+    public double getOutOfDomainRate() {
+        return rate(outOfDomain.sum(), evaluations.sum());
+    }
+
+    public long[] getEvaluationLatencyHistogram() {
+        return evaluationLatency.snapshot();
+    }
+
+    public long getEvaluationLatencyP50Nanos() {
+        return evaluationLatency.percentile(0.5);
+    }
+
+    public long getEvaluationLatencyP99Nanos() {
+        return evaluationLatency.percentile(0.99);
+    }
+
+    public long getSegmentSearchCount() {
+        return searchLength.count();
+    }
+
+    public double getAverageSegmentSearchLength() {
+        return rate(searchLength.total(), searchLength.count());
+    }
+
+    public long[] getSegmentSearchLengthHistogram() {
+        return searchLength.snapshot();
+    }
+
+    public long getSegmentCacheHitCount() {
+        return segmentCacheHits.sum();
+    }
+
+    public long getSegmentCacheMissCount() {
+        return segmentCacheMisses.sum();
+    }
+
+    public long getNodeCacheHitCount() {
+        return nodeCacheHits.sum();
+    }
+
+    public long getNodeCacheMissCount() {
+        return nodeCacheMisses.sum();
+    }
+
+    public double getNodeCacheHitRate() {
+        long hits = nodeCacheHits.sum();
+        return rate(hits, hits + nodeCacheMisses.sum());
+    }
+
+    public long getArrayGrowthCount() {
+        return arrayGrowths.sum();
+    }
+
+    public long getInappropriatePointExceptionCount() {
+        return inappropriatePointExceptions.sum();
+    }
+
+    public long getIndexOutOfBoundsExceptionCount() {
+        return indexOutOfBoundsExceptions.sum();
+    }
+
+    public String[] getTableSummaries() {
+        Table[] snapshot = tables.values().toArray(new Table[0]);
+        String[] summaries = new String[snapshot.length];
+        for (int i = 0; i < snapshot.length; i++) {
+            summaries[i] = snapshot[i].toString();
+        }
+        return summaries;
+    }
+
+    public void reset() {
+        evaluations.reset();
+        outOfDomain.reset();
+        evaluationLatency.reset();
+        searchLength.reset();
+        segmentCacheHits.reset();
+        segmentCacheMisses.reset();
+        nodeCacheHits.reset();
+        nodeCacheMisses.reset();
+        arrayGrowths.reset();
+        inappropriatePointExceptions.reset();
+        indexOutOfBoundsExceptions.reset();
+        for (Table table : tables.values()) {
+            table.reset();
+        }
+    }
+
+    private static double rate(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+    // Счетчики одной именованной таблицы. Кэш - кэш последнего отрезка в массивах
+    // или последнего узла в связном списке
+    public static final class Table {
+        private final String name;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder outOfDomain = new LongAdder();
+        private final LongAdder searches = new LongAdder();
+        private final LongAdder searchSteps = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder cacheMisses = new LongAdder();
+        private final LongAdder arrayGrowths = new LongAdder();
+
+        private Table(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getEvaluationCount() {
+            return evaluations.sum();
+        }
+
+        public long getOutOfDomainCount() {
+            return outOfDomain.sum();
+        }
+
+        public long getSearchCount() {
+            return searches.sum();
+        }
+
+        public double getAverageSearchLength() {
+            return rate(searchSteps.sum(), searches.sum());
+        }
+
+        public long getCacheHitCount() {
+            return cacheHits.sum();
+        }
+
+        public long getCacheMissCount() {
+            return cacheMisses.sum();
+        }
+
+        public double getCacheHitRate() {
+            long hits = cacheHits.sum();
+            return rate(hits, hits + cacheMisses.sum());
+        }
+
+        public long getArrayGrowthCount() {
+            return arrayGrowths.sum();
+        }
+
+        void reset() {
+            evaluations.reset();
+            outOfDomain.reset();
+            searches.reset();
+            searchSteps.reset();
+            cacheHits.reset();
+            cacheMisses.reset();
+            arrayGrowths.reset();
+        }
+
+        public String toString() {
+            return name + ": вычислений " + getEvaluationCount() + ", вне области " + getOutOfDomainCount()
+                    + ", поисков " + getSearchCount() + " (в среднем " + getAverageSearchLength() + " шагов)"
+                    + ", попаданий в кэш " + getCacheHitRate() + ", ростов массива " + getArrayGrowthCount();
+        }
+    }
+
+    // Гистограмма с границами по степеням двойки: значение v попадает в ячейку
+    // 64 - numberOfLeadingZeros(v), то есть ячейка k хранит [2^(k-1), 2^k)
+    private static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[65];
+        private final LongAdder total = new LongAdder();
+
+        Histogram() {
+            for (int k = 0; k < buckets.length; k++) {
+                buckets[k] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;  // System.nanoTime может идти назад при смене ядра
+            }
+            buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+            total.add(value);
+        }
+
+        long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        long[] snapshot() {
+            long[] counts = new long[buckets.length];
+            for (int k = 0; k < counts.length; k++) {
+                counts[k] = buckets[k].sum();
+            }
+            return counts;
+        }
+
+        // Верхняя граница ячейки, в которую попадает доля fraction значений
+        long percentile(double fraction) {
+            long[] counts = snapshot();
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int k = 0; k < counts.length; k++) {
+                seen += counts[k];
+                if (seen >= target) {
+                    return k == 0 ? 0 : k >= 63 ? Long.MAX_VALUE : (1L << k) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            total.reset();
+        }
+    }
+}
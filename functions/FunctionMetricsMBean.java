@@ -0,0 +1,53 @@
+package functions;
+
+// Счетчики FunctionMetrics, видимые через JMX (объект functions:type=FunctionMetrics)
+public interface FunctionMetricsMBean {
+    boolean isEnabled();
+
+    // Вычисления значений
+    long getEvaluationCount();
+
+    long getOutOfDomainCount();
+
+    double getOutOfDomainRate();
+
+    // Время вычисления: bucket k - значения из [2^(k-1), 2^k) наносекунд, bucket 0 - ноль
+    long[] getEvaluationLatencyHistogram();
+
+    long getEvaluationLatencyP50Nanos();
+
+    long getEvaluationLatencyP99Nanos();
+
+    // Поиск отрезка: длина поиска (шаги бинарного поиска или узлы, пройденные по списку)
+    long getSegmentSearchCount();
+
+    double getAverageSegmentSearchLength();
+
+    long[] getSegmentSearchLengthHistogram();
+
+    // Кэш последнего отрезка в массивах
+    long getSegmentCacheHitCount();
+
+    long getSegmentCacheMissCount();
+
+    // Кэш последнего узла, к которому обращались по номеру, в связном списке
+    long getNodeCacheHitCount();
+
+    long getNodeCacheMissCount();
+
+    double getNodeCacheHitRate();
+
+    // Перевыделения массива точек при добавлении
+    long getArrayGrowthCount();
+
+    // Созданные исключения
+    long getInappropriatePointExceptionCount();
+
+    long getIndexOutOfBoundsExceptionCount();
+
+    // Счетчики именованных таблиц (см. FunctionMetrics.table), по строке на таблицу
+    String[] getTableSummaries();
+
+    // Обнуляет все счетчики
+    void reset();
+}
@@ -0,0 +1,27 @@
+package functions;
+
+// Курсор для последовательного обхода точек табулированной функции без создания объектов.
+// Курсор стоит между точками (как ListIterator): next() и previous() переходят через соседнюю
+// точку и делают ее текущей, getX() и getY() читают координаты текущей точки.
+// Если после создания курсора в функцию добавили точки или удалили их,
+// методы курсора выбрасывают java.util.ConcurrentModificationException
+public interface FunctionPointCursor {
+    // Есть ли точка после курсора
+    boolean hasNext();
+
+    // Есть ли точка перед курсором
+    boolean hasPrevious();
+
+    // Переходит вперед через следующую точку (NoSuchElementException, если ее нет)
+    void next();
+
+    // Переходит назад через предыдущую точку (NoSuchElementException, если ее нет)
+    void previous();
+
+    // Номер текущей точки (-1, пока курсор ни разу не двигали)
+    int getIndex();
+
+    double getX();
+
+    double getY();
+}
@@ -3,12 +3,24 @@ package functions;
 public class FunctionPointIndexOutOfBoundsException extends IndexOutOfBoundsException {
     public FunctionPointIndexOutOfBoundsException() {
         super("Выход за границы набора точек");
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordIndexOutOfBounds();
+        }
     }
 
     public FunctionPointIndexOutOfBoundsException(String message) {
         super(message);
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordIndexOutOfBounds();
+        }
     }
 
+    // Исключение для неверного номера точки. Реализации вызывают этот метод из проверки номера:
+    // сообщение собирается здесь, вне горячих методов доступа, чтобы их байткод оставался коротким
+    // и JIT встраивал их целиком
+    static FunctionPointIndexOutOfBoundsException forIndex(int index) {
+        return new FunctionPointIndexOutOfBoundsException("Индекс " + index + " выходит за границы набора точек");
+    }
 }
 
 //исключение выхода за границы набора точек при обращении к ним по номеру,
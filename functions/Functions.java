@@ -0,0 +1,40 @@
+package functions;
+
+import functions.meta.Composition;
+import functions.meta.Difference;
+import functions.meta.Mult;
+import functions.meta.Scale;
+import functions.meta.Sum;
+
+// Ленивые выражения из функций: результат хранит ссылки на исходные функции и вычисляет
+// значение при обращении, не строя таблиц для промежуточных результатов. Изменения исходных
+// табулированных функций сразу видны в выражении. Готовое выражение можно один раз
+// табулировать (TabulatedFunctions.tabulate(Function, ...)), а таблицы, построенные сразу,
+// дают одноименные методы TabulatedFunctions
+public final class Functions {
+
+    // Объекты класса не создаются
+    private Functions() {
+    }
+
+    public static Function sum(Function first, Function second) {
+        return new Sum(first, second);
+    }
+
+    public static Function difference(Function first, Function second) {
+        return new Difference(first, second);
+    }
+
+    public static Function mult(Function first, Function second) {
+        return new Mult(first, second);
+    }
+
+    public static Function scale(Function function, double scaleX, double scaleY) {
+        return new Scale(function, scaleX, scaleY);
+    }
+
+    // outer(inner(x))
+    public static Function composition(Function outer, Function inner) {
+        return new Composition(outer, inner);
+    }
+}
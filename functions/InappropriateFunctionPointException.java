@@ -2,15 +2,51 @@ package functions;
 
 // Исключение для некорректных точек функции
 public class InappropriateFunctionPointException extends Exception {
+    // Некорректные точки (пусто, если не указаны). Хранятся как массивы абсцисс и ординат:
+    // FunctionPoint не сериализуем, а исключение должно сериализоваться вместе с ними
+    private final double[] offendingXs;
+    private final double[] offendingYs;
 
     // Конструктор по умолчанию
     public InappropriateFunctionPointException() {
         super("Некорректная точка функции");
+        this.offendingXs = new double[0];
+        this.offendingYs = new double[0];
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordInappropriatePoint();
+        }
     }
 
     // Конструктор с пользовательским сообщением
     public InappropriateFunctionPointException(String message) {
         super(message); // Передаем сообщение родительскому классу
+        this.offendingXs = new double[0];
+        this.offendingYs = new double[0];
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordInappropriatePoint();
+        }
     }
 
+    // Конструктор со списком всех некорректных точек (например, при проверке пакета изменений)
+    public InappropriateFunctionPointException(String message, FunctionPoint[] offendingPoints) {
+        super(message);
+        this.offendingXs = new double[offendingPoints.length];
+        this.offendingYs = new double[offendingPoints.length];
+        for (int i = 0; i < offendingPoints.length; i++) {
+            offendingXs[i] = offendingPoints[i].getX();
+            offendingYs[i] = offendingPoints[i].getY();
+        }
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordInappropriatePoint();
+        }
+    }
+
+    // Некорректные точки; при каждом вызове создаются новые объекты
+    public FunctionPoint[] getOffendingPoints() {
+        FunctionPoint[] points = new FunctionPoint[offendingXs.length];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new FunctionPoint(offendingXs[i], offendingYs[i]);
+        }
+        return points;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package functions;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+// Курсор для реализаций, у которых точка по номеру берется за O(1).
+// Наследник сообщает количество точек, их координаты и счетчик изменений
+abstract class IndexPointCursor implements FunctionPointCursor {
+    private int nextIndex;              // номер точки, через которую перейдет next()
+    private int currentIndex = -1;      // номер текущей точки
+    private final int expectedModCount; // счетчик изменений функции при создании курсора
+
+    // Курсор перед точкой index (0 <= index <= pointsCount)
+    IndexPointCursor(int index, int pointsCount, int modCount) {
+        if (index < 0 || index > pointsCount) {
+            throw new FunctionPointIndexOutOfBoundsException("Позиция курсора " + index + " выходит за границы набора точек");
+        }
+        this.nextIndex = index;
+        this.expectedModCount = modCount;
+    }
+
+    abstract int pointsCount();
+
+    abstract int modCount();
+
+    abstract double x(int index);
+
+    abstract double y(int index);
+
+    public boolean hasNext() {
+        return nextIndex < pointsCount();
+    }
+
+    public boolean hasPrevious() {
+        return nextIndex > 0;
+    }
+
+    public void next() {
+        checkModification();
+        if (nextIndex >= pointsCount()) {
+            throw new NoSuchElementException("После курсора нет точек");
+        }
+        currentIndex = nextIndex++;
+    }
+
+    public void previous() {
+        checkModification();
+        if (nextIndex <= 0) {
+            throw new NoSuchElementException("Перед курсором нет точек");
+        }
+        currentIndex = --nextIndex;
+    }
+
+    public int getIndex() {
+        return currentIndex;
+    }
+
+    public double getX() {
+        checkCurrent();
+        return x(currentIndex);
+    }
+
+    public double getY() {
+        checkCurrent();
+        return y(currentIndex);
+    }
+
+    private void checkCurrent() {
+        checkModification();
+        if (currentIndex < 0) {
+            throw new IllegalStateException("Курсор еще не перешел ни через одну точку");
+        }
+    }
+
+    private void checkModification() {
+        if (modCount() != expectedModCount) {
+            throw new ConcurrentModificationException("Точки функции изменились во время обхода");
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package functions;
+
+import java.util.Spliterator;
+import java.util.function.DoubleUnaryOperator;
+
+//Декоратор, вычисляющий интегралы кусочно-линейной функции по любому отрезку [a, b] за O(log n).
+//Площади отрезков между узлами хранятся в дереве Фенвика (дереве частичных сумм): сумма площадей
+//первых k отрезков получается за O(log n), а изменение одной площади обновляет O(log n) ячеек.
+//setPointY, setPointX и setPoint меняют площади двух соседних отрезков и обновляют дерево за O(log n).
+//Добавление и удаление точек сдвигают номера всех отрезков правее, поэтому после них дерево
+//строится заново за O(n) - лениво, при следующем запросе интеграла.
+//Вместе с деревом хранятся копии абсцисс и ординат (снимаются одним проходом курсора), поэтому
+//поиск отрезка не обращается к функции по номеру - для связного списка это был бы обход списка.
+//Функцию нужно менять только через декоратор, иначе дерево устареет. Класс не потокобезопасен
+public class IntegratingTabulatedFunction implements TabulatedFunction {
+    private final TabulatedFunction function;  // Оборачиваемая функция
+    private double[] xs = new double[0];       // Копия абсцисс точек
+    private double[] ys = new double[0];       // Копия ординат точек
+    private double[] tree = new double[0];     // Дерево Фенвика по площадям отрезков, ячейки с 1
+    private int segmentsCount;                 // Количество отрезков, по которым построено дерево
+    private boolean valid;                     // Дерево соответствует текущим точкам
+
+    public IntegratingTabulatedFunction(TabulatedFunction function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Функция не может быть null");
+        }
+        this.function = function;
+    }
+
+    // ИНТЕГРАЛЫ
+
+    // Интеграл по всей области определения
+    public double integral() {
+        ensureTree();
+        return prefixSum(segmentsCount);
+    }
+
+    // Интеграл по [a, b]; при a > b - со знаком минус. NaN, если отрезок выходит из области определения
+    public double integral(double a, double b) {
+        if (a > b) {
+            return -integral(b, a);
+        }
+        return cumulativeIntegral(b) - cumulativeIntegral(a);
+    }
+
+    // Интеграл от левой границы области определения до x (NaN вне области определения)
+    public double cumulativeIntegral(double x) {
+        ensureTree();
+        if (!(x >= xs[0] && x <= xs[segmentsCount])) {
+            return Double.NaN;
+        }
+
+        // площадь целых отрезков левее x и части отрезка, содержащего x
+        int i = findSegmentIndex(x);
+        double x1 = xs[i];
+        double y1 = ys[i];
+        double x2 = xs[i + 1];
+        double y2 = ys[i + 1];
+        double y = y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+        return prefixSum(i) + 0.5 * (y1 + y) * (x - x1);
+    }
+
+    // Номер отрезка [x(i), x(i+1)], содержащего x (бинарный поиск по копии абсцисс)
+    private int findSegmentIndex(double x) {
+        int low = 0;
+        int high = segmentsCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (xs[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // ДЕРЕВО ФЕНВИКА
+
+    // Площадь трапеции под отрезком i
+    private double area(int i) {
+        return 0.5 * (ys[i] + ys[i + 1]) * (xs[i + 1] - xs[i]);
+    }
+
+    // Снимает копии точек и строит дерево за O(n): каждая ячейка передает свою сумму ближайшему "родителю"
+    private void ensureTree() {
+        if (valid) {
+            return;
+        }
+        int pointsCount = function.getPointsCount();
+        segmentsCount = pointsCount - 1;
+        if (xs.length < pointsCount) {
+            xs = new double[pointsCount];
+            ys = new double[pointsCount];
+        }
+        FunctionPointCursor cursor = function.cursor();
+        for (int i = 0; i < pointsCount; i++) {
+            cursor.next();
+            xs[i] = cursor.getX();
+            ys[i] = cursor.getY();
+        }
+        if (tree.length < segmentsCount + 1) {
+            tree = new double[Math.max(segmentsCount + 1, tree.length * 2)];
+        }
+        tree[0] = 0;
+        for (int k = 1; k <= segmentsCount; k++) {
+            tree[k] = area(k - 1);
+        }
+        for (int k = 1; k <= segmentsCount; k++) {
+            int parent = k + (k & -k);
+            if (parent <= segmentsCount) {
+                tree[parent] += tree[k];
+            }
+        }
+        valid = true;
+    }
+
+    // Сумма площадей отрезков с номерами [0, count)
+    private double prefixSum(int count) {
+        double sum = 0;
+        for (int k = count; k > 0; k -= k & -k) {
+            sum += tree[k];
+        }
+        return sum;
+    }
+
+    // Прибавляет delta к площади отрезка i
+    private void addToSegment(int i, double delta) {
+        for (int k = i + 1; k <= segmentsCount; k += k & -k) {
+            tree[k] += delta;
+        }
+    }
+
+    // Площади отрезков, прилегающих к точке index (отрезков с номерами index-1 и index)
+    private double leftArea(int index) {
+        return index > 0 ? area(index - 1) : 0;
+    }
+
+    private double rightArea(int index) {
+        return index < segmentsCount ? area(index) : 0;
+    }
+
+    // Обновляет дерево после изменения точки index (копии уже обновлены) по прежним площадям соседних отрезков
+    private void updateAround(int index, double oldLeftArea, double oldRightArea) {
+        if (index > 0) {
+            addToSegment(index - 1, leftArea(index) - oldLeftArea);
+        }
+        if (index < segmentsCount) {
+            addToSegment(index, rightArea(index) - oldRightArea);
+        }
+    }
+
+    // ИЗМЕНЕНИЕ ТОЧЕК
+
+    public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        function.setPoint(index, point);
+        if (valid) {
+            // копии еще хранят прежнюю точку - по ним считаются прежние площади
+            double oldLeft = leftArea(index);
+            double oldRight = rightArea(index);
+            xs[index] = point.getX();
+            ys[index] = point.getY();
+            updateAround(index, oldLeft, oldRight);
+        }
+    }
+
+    public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        function.setPointX(index, x);
+        if (valid) {
+            double oldLeft = leftArea(index);
+            double oldRight = rightArea(index);
+            xs[index] = x;
+            updateAround(index, oldLeft, oldRight);
+        }
+    }
+
+    public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        function.setPointY(index, y);
+        if (valid) {
+            double oldLeft = leftArea(index);
+            double oldRight = rightArea(index);
+            ys[index] = y;
+            updateAround(index, oldLeft, oldRight);
+        }
+    }
+
+    // Изменения количества точек сдвигают номера отрезков - дерево перестраивается при следующем запросе
+    public void deletePoint(int index) throws IllegalStateException, FunctionPointIndexOutOfBoundsException {
+        function.deletePoint(index);
+        valid = false;
+    }
+
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        function.addPoint(point);
+        valid = false;
+    }
+
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        function.addPoints(xs, ys);
+        valid = false;
+    }
+
+    public void setPoints(double[] xs, double[] ys) {
+        function.setPoints(xs, ys);
+        valid = false;
+    }
+
+    public void simplify(double maxError) {
+        function.simplify(maxError);
+        valid = false;
+    }
+
+    public void mapY(DoubleUnaryOperator operator) {
+        function.mapY(operator);
+        valid = false;
+    }
+
+    public void fillY(DoubleUnaryOperator function) {
+        this.function.fillY(function);
+        valid = false;
+    }
+
+    // ОСТАЛЬНЫЕ МЕТОДЫ - без изменений передаются функции
+    public double getFunctionValue(double x) {
+        return function.getFunctionValue(x);
+    }
+
+    public void getFunctionValues(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        function.getFunctionValues(xs, xsOffset, out, outOffset, length);
+    }
+
+    public double[] evaluateAll(double[] xs) {
+        return function.evaluateAll(xs);
+    }
+
+    public double getLeftDomainBorder() {
+        return function.getLeftDomainBorder();
+    }
+
+    public double getRightDomainBorder() {
+        return function.getRightDomainBorder();
+    }
+
+    public int getPointsCount() {
+        return function.getPointsCount();
+    }
+
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPoint(index);
+    }
+
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPoint(index, reuse);
+    }
+
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPointX(index);
+    }
+
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPointY(index);
+    }
+
+    public FunctionPointCursor cursor(int index) {
+        return function.cursor(index);
+    }
+
+    public Spliterator<FunctionPoint> spliterator() {
+        return function.spliterator();
+    }
+
+    public TabulatedFunction freeze() {
+        return function.freeze();
+    }
+
+    public String toString() {
+        return function.toString();
+    }
+}
@@ -0,0 +1,424 @@
+package functions;
+
+import java.util.function.DoubleUnaryOperator;
+
+//Табулированная функция с выбираемым способом интерполяции (см. Interpolation).
+//Точки хранятся так же, как в PrimitiveArrayTabulatedFunction (хранение, поиск отрезка, курсор и
+//вычисление значений наследуются), а для каждого отрезка заранее вычислены коэффициенты многочлена
+//y = y(i) + t * (c1 + t * (c2 + t * c3)), t = x - x(i), поэтому значение - это поиск отрезка
+//и вычисление многочлена по схеме Горнера.
+//При изменении точки PCHIP, Акима и линейная интерполяция пересчитывают производные и коэффициенты
+//только у соседних узлов (от i-2 до i+2); у сплайнов производные зависят от всех точек,
+//поэтому они пересчитываются целиком - одним проходом метода прогонки, O(n)
+public class InterpolatedTabulatedFunction extends PrimitiveArrayTabulatedFunction {
+    private static final int LOCAL_UPDATE_MIN_POINTS = 6;  // меньшие таблицы проще пересчитать целиком
+
+    private double[] slopes;            // Производная в узле (для линейной интерполяции не используется)
+    private double[] c1;                // Коэффициенты многочлена отрезка i
+    private double[] c2;
+    private double[] c3;
+    private double[] work;              // Рабочий массив прогонки
+    private Interpolation interpolation;
+    private double leftSlope;           // Производные на концах для CLAMPED_SPLINE
+    private double rightSlope;
+    private final boolean readOnly;     // Снимок, полученный freeze()
+
+    // КОНСТРУКТОРЫ:
+
+    //Произвольная сетка: абсциссы и ординаты точек в двух массивах (массивы копируются)
+    public InterpolatedTabulatedFunction(double[] xs, double[] ys, Interpolation interpolation) throws IllegalArgumentException {
+        super(xs, ys);
+        if (interpolation == null) {
+            throw new IllegalArgumentException("Способ интерполяции не может быть null");
+        }
+        allocate(this.xs.length);
+        this.interpolation = interpolation;
+        this.readOnly = false;
+        rebuild();
+    }
+
+    //Копирует точки другой табулированной функции
+    public InterpolatedTabulatedFunction(TabulatedFunction function, Interpolation interpolation) throws IllegalArgumentException {
+        this(TabulatedFunctions.getXs(function), TabulatedFunctions.getYs(function), interpolation);
+    }
+
+    // Копия с коэффициентами; readOnly - для снимка
+    private InterpolatedTabulatedFunction(InterpolatedTabulatedFunction source, boolean readOnly) {
+        super(TabulatedFunctions.getXs(source), TabulatedFunctions.getYs(source));
+        allocate(xs.length);
+        System.arraycopy(source.slopes, 0, slopes, 0, pointsCount);
+        System.arraycopy(source.c1, 0, c1, 0, pointsCount - 1);
+        System.arraycopy(source.c2, 0, c2, 0, pointsCount - 1);
+        System.arraycopy(source.c3, 0, c3, 0, pointsCount - 1);
+        this.interpolation = source.interpolation;
+        this.leftSlope = source.leftSlope;
+        this.rightSlope = source.rightSlope;
+        this.readOnly = readOnly;
+    }
+
+    // Массивы узлов и отрезков той же емкости, что и xs
+    private void allocate(int capacity) {
+        slopes = new double[capacity];
+        c1 = new double[capacity];
+        c2 = new double[capacity];
+        c3 = new double[capacity];
+        work = new double[capacity];
+    }
+
+    // СПОСОБ ИНТЕРПОЛЯЦИИ
+    public Interpolation getInterpolation() {
+        return interpolation;
+    }
+
+    public void setInterpolation(Interpolation interpolation) {
+        checkWritable();
+        if (interpolation == null) {
+            throw new IllegalArgumentException("Способ интерполяции не может быть null");
+        }
+        this.interpolation = interpolation;
+        rebuild();
+    }
+
+    public double getLeftSlope() {
+        return leftSlope;
+    }
+
+    public double getRightSlope() {
+        return rightSlope;
+    }
+
+    // Производные на концах для CLAMPED_SPLINE (по умолчанию 0)
+    public void setEndSlopes(double leftSlope, double rightSlope) {
+        checkWritable();
+        this.leftSlope = leftSlope;
+        this.rightSlope = rightSlope;
+        if (interpolation == Interpolation.CLAMPED_SPLINE) {
+            rebuild();
+        }
+    }
+
+    // ЗНАЧЕНИЕ НА ОТРЕЗКЕ (поиск отрезка и пакетное вычисление наследуются)
+
+    // Многочлен отрезка i с привязкой к узлам
+    double valueOnSegment(int i, double x) {
+        // Проверяем совпадение с концами отрезка (используя машинный эпсилон)
+        if (Math.abs(x - xs[i]) < 1e-10) {
+            return ys[i];
+        }
+        if (Math.abs(x - xs[i + 1]) < 1e-10) {
+            return ys[i + 1];
+        }
+        double t = x - xs[i];
+        return ys[i] + t * (c1[i] + t * (c2[i] + t * c3[i]));
+    }
+
+    // КОЭФФИЦИЕНТЫ ОТРЕЗКОВ
+
+    // Пересчитывает производные во всех узлах и коэффициенты всех отрезков
+    private void rebuild() {
+        int n = pointsCount;
+        if (interpolation != Interpolation.LINEAR) {
+            if (interpolation.isGlobal()) {
+                solveSpline();
+            } else if (n == 2) {
+                // локальным способам нужны три точки; через две проводится прямая
+                slopes[0] = secant(0);
+                slopes[1] = secant(0);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    slopes[i] = localSlope(i);
+                }
+            }
+        }
+        for (int j = 0; j < n - 1; j++) {
+            updateSegment(j);
+        }
+        lastSegmentIndex = 0;
+    }
+
+    // Обновляет коэффициенты после изменения точки k (или вставки/удаления на месте k):
+    // производные узлов k-2..k+2 и коэффициенты отрезков, которые их касаются
+    private void refreshAround(int k) {
+        int n = pointsCount;
+        if (interpolation.isGlobal() || n < LOCAL_UPDATE_MIN_POINTS) {
+            rebuild();
+            return;
+        }
+        int first = Math.max(k - 2, 0);
+        int last = Math.min(k + 2, n - 1);
+        if (interpolation != Interpolation.LINEAR) {
+            for (int i = first; i <= last; i++) {
+                slopes[i] = localSlope(i);
+            }
+        }
+        for (int j = Math.max(first - 1, 0); j <= Math.min(last, n - 2); j++) {
+            updateSegment(j);
+        }
+        lastSegmentIndex = 0;
+    }
+
+    // Коэффициенты отрезка j: для линейной интерполяции - прямая, иначе многочлен Эрмита
+    // с производными slopes[j], slopes[j+1] в концах
+    private void updateSegment(int j) {
+        double h = xs[j + 1] - xs[j];
+        double delta = (ys[j + 1] - ys[j]) / h;
+        if (interpolation == Interpolation.LINEAR) {
+            c1[j] = delta;
+            c2[j] = 0;
+            c3[j] = 0;
+            return;
+        }
+        double d0 = slopes[j];
+        double d1 = slopes[j + 1];
+        c1[j] = d0;
+        c2[j] = (3 * delta - 2 * d0 - d1) / h;
+        c3[j] = (d0 + d1 - 2 * delta) / (h * h);
+    }
+
+    // Наклон отрезка j
+    private double secant(int j) {
+        return (ys[j + 1] - ys[j]) / (xs[j + 1] - xs[j]);
+    }
+
+    // Производная в узле i по соседним точкам (PCHIP или Акима, не меньше трех точек)
+    private double localSlope(int i) {
+        return interpolation == Interpolation.PCHIP ? pchipSlope(i) : akimaSlope(i);
+    }
+
+    // PCHIP: взвешенное гармоническое среднее соседних наклонов, ноль в локальном экстремуме
+    private double pchipSlope(int i) {
+        int last = pointsCount - 1;
+        if (i == 0) {
+            return pchipEndSlope(xs[1] - xs[0], xs[2] - xs[1], secant(0), secant(1));
+        }
+        if (i == last) {
+            return pchipEndSlope(xs[last] - xs[last - 1], xs[last - 1] - xs[last - 2], secant(last - 1), secant(last - 2));
+        }
+        double s0 = secant(i - 1);
+        double s1 = secant(i);
+        if (s0 * s1 <= 0) {
+            return 0;
+        }
+        double h0 = xs[i] - xs[i - 1];
+        double h1 = xs[i + 1] - xs[i];
+        double w1 = 2 * h1 + h0;
+        double w2 = h1 + 2 * h0;
+        return (w1 + w2) / (w1 / s0 + w2 / s1);
+    }
+
+    // Крайний узел: формула по трем точкам, ограниченная так, чтобы сохранить монотонность
+    private static double pchipEndSlope(double h0, double h1, double s0, double s1) {
+        double d = ((2 * h0 + h1) * s0 - h0 * s1) / (h0 + h1);
+        if (Math.signum(d) != Math.signum(s0)) {
+            return 0;
+        }
+        if (Math.signum(s0) != Math.signum(s1) && Math.abs(d) > Math.abs(3 * s0)) {
+            return 3 * s0;
+        }
+        return d;
+    }
+
+    // Акима: среднее наклонов слева и справа от узла с весами по изменению наклонов дальше от него
+    private double akimaSlope(int i) {
+        double m1 = akimaSecant(i - 2);
+        double m2 = akimaSecant(i - 1);
+        double m3 = akimaSecant(i);
+        double m4 = akimaSecant(i + 1);
+        double w1 = Math.abs(m4 - m3);
+        double w2 = Math.abs(m2 - m1);
+        if (w1 + w2 == 0) {
+            return 0.5 * (m2 + m3);
+        }
+        return (w1 * m2 + w2 * m3) / (w1 + w2);
+    }
+
+    // Наклон отрезка j; за концами таблицы - продолжение с постоянной разностью наклонов
+    private double akimaSecant(int j) {
+        int last = pointsCount - 2;  // номер последнего отрезка
+        if (j < 0) {
+            return j == -1 ? 2 * secant(0) - secant(1) : 3 * secant(0) - 2 * secant(1);
+        }
+        if (j > last) {
+            return j == last + 1 ? 2 * secant(last) - secant(last - 1) : 3 * secant(last) - 2 * secant(last - 1);
+        }
+        return secant(j);
+    }
+
+    // Производные кубического сплайна: трехдиагональная система
+    //   h(i) d(i-1) + 2 (h(i-1) + h(i)) d(i) + h(i-1) d(i+1) = 3 (h(i) s(i-1) + h(i-1) s(i))
+    // с условием на концах (нулевая вторая производная или заданная первая), решается прогонкой
+    private void solveSpline() {
+        int n = pointsCount;
+        boolean clamped = interpolation == Interpolation.CLAMPED_SPLINE;
+
+        // прямой ход: work - приведенная наддиагональ, slopes - приведенная правая часть
+        if (clamped) {
+            work[0] = 0;
+            slopes[0] = leftSlope;
+        } else {
+            work[0] = 0.5;
+            slopes[0] = 1.5 * secant(0);
+        }
+        for (int i = 1; i < n; i++) {
+            double sub;
+            double diag;
+            double sup;
+            double rhs;
+            if (i == n - 1) {
+                if (clamped) {
+                    sub = 0;
+                    diag = 1;
+                    rhs = rightSlope;
+                } else {
+                    sub = 1;
+                    diag = 2;
+                    rhs = 3 * secant(n - 2);
+                }
+                sup = 0;
+            } else {
+                double h0 = xs[i] - xs[i - 1];
+                double h1 = xs[i + 1] - xs[i];
+                sub = h1;
+                diag = 2 * (h0 + h1);
+                sup = h0;
+                rhs = 3 * (h1 * secant(i - 1) + h0 * secant(i));
+            }
+            double m = diag - sub * work[i - 1];
+            work[i] = sup / m;
+            slopes[i] = (rhs - sub * slopes[i - 1]) / m;
+        }
+
+        // обратный ход
+        for (int i = n - 2; i >= 0; i--) {
+            slopes[i] -= work[i] * slopes[i + 1];
+        }
+    }
+
+    // ИЗМЕНЕНИЕ ТОЧЕК: проверки и сдвиги массивов точек наследуются, затем пересчитываются коэффициенты
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Снимок функции нельзя изменять");
+        }
+    }
+
+    public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        checkWritable();
+        super.setPoint(index, point);
+        refreshAround(index);
+    }
+
+    public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        checkWritable();
+        super.setPointX(index, x);
+        refreshAround(index);
+    }
+
+    public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        checkWritable();
+        super.setPointY(index, y);
+        refreshAround(index);
+    }
+
+    // Массовые изменения ординат пересчитывают коэффициенты один раз в конце
+    public void mapY(DoubleUnaryOperator operator) {
+        checkWritable();
+        super.mapY(operator);
+        rebuild();
+    }
+
+    public void fillY(DoubleUnaryOperator function) {
+        checkWritable();
+        super.fillY(function);
+        rebuild();
+    }
+
+    // МЕТОДЫ ДЛЯ ИЗМЕНЕНИЯ КОЛИЧЕСТВА ТОЧЕК:
+
+    // Удаляет точку: массивы узлов и отрезков сдвигаются, коэффициенты пересчитываются вокруг места удаления
+    public void deletePoint(int index) throws FunctionPointIndexOutOfBoundsException, IllegalStateException {
+        checkWritable();
+        super.deletePoint(index);
+
+        System.arraycopy(slopes, index + 1, slopes, index, pointsCount - index);
+        // отрезки правее удаленной точки сдвигаются на одно место влево
+        int segmentTail = pointsCount - 1 - index;
+        if (segmentTail > 0) {
+            System.arraycopy(c1, index + 1, c1, index, segmentTail);
+            System.arraycopy(c2, index + 1, c2, index, segmentTail);
+            System.arraycopy(c3, index + 1, c3, index, segmentTail);
+        }
+        refreshAround(index);
+    }
+
+    // Добавляет точку с сохранением упорядоченности
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        checkWritable();
+        super.addPoint(point);
+
+        // место вставленной точки; узлы и отрезки начиная с него сдвигаются на одно место вправо
+        int insertIndex = TabulatedFunctions.lowerBound(xs, 0, pointsCount, point.getX());
+        System.arraycopy(slopes, insertIndex, slopes, insertIndex + 1, pointsCount - 1 - insertIndex);
+        int segmentTail = pointsCount - 2 - insertIndex;
+        if (segmentTail > 0) {
+            System.arraycopy(c1, insertIndex, c1, insertIndex + 1, segmentTail);
+            System.arraycopy(c2, insertIndex, c2, insertIndex + 1, segmentTail);
+            System.arraycopy(c3, insertIndex, c3, insertIndex + 1, segmentTail);
+        }
+        refreshAround(insertIndex);
+    }
+
+    // Набор точек сливается с таблицей за один проход, затем коэффициенты пересчитываются целиком
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        checkWritable();
+        int before = modCount;
+        super.addPoints(xs, ys);
+        if (modCount != before) {
+            rebuild();
+        }
+    }
+
+    // Замена всех точек: коэффициенты пересчитываются один раз
+    public void setPoints(double[] xs, double[] ys) {
+        checkWritable();
+        super.setPoints(xs, ys);
+        rebuild();
+    }
+
+    // УПРОЩЕНИЕ
+
+    // Удаляет лишние узлы (см. TabulatedFunction.simplify) одним проходом и пересчитывает коэффициенты
+    // один раз. Маска ограничивает отклонение ломаной по узлам, а не текущей кривой: для LINEAR
+    // ошибка не больше maxError, а сплайны, PCHIP и Акима после удаления узлов строятся заново
+    // и могут отойти от прежней кривой дальше
+    public void simplify(double maxError) {
+        checkWritable();
+        int before = modCount;
+        super.simplify(maxError);
+        if (modCount != before) {
+            rebuild();
+        }
+    }
+
+    // Массивы точек выросли - растут и массивы узлов и отрезков
+    void arraysGrown(int capacity) {
+        slopes = grow(slopes, capacity);
+        c1 = grow(c1, capacity);
+        c2 = grow(c2, capacity);
+        c3 = grow(c3, capacity);
+        work = new double[capacity];
+    }
+
+    private double[] grow(double[] array, int capacity) {
+        double[] grown = new double[capacity];
+        System.arraycopy(array, 0, grown, 0, pointsCount);
+        return grown;
+    }
+
+    // СНИМОК
+
+    // Снимок сохраняет способ интерполяции и готовые коэффициенты; изменять его нельзя
+    public TabulatedFunction freeze() {
+        return readOnly ? this : new InterpolatedTabulatedFunction(this, true);
+    }
+}
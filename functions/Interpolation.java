@@ -0,0 +1,22 @@
+package functions;
+
+// Способ интерполяции между узлами для InterpolatedTabulatedFunction.
+// Все способы, кроме линейного, строят на каждом отрезке кубический многочлен Эрмита
+// по значениям и производным в концах; различаются способом выбора производных
+public enum Interpolation {
+    // Отрезки прямых, как у остальных табулированных функций
+    LINEAR,
+    // Кубический сплайн (непрерывна вторая производная) с нулевой второй производной на концах
+    NATURAL_SPLINE,
+    // Кубический сплайн с заданными первыми производными на концах (см. setEndSlopes)
+    CLAMPED_SPLINE,
+    // Монотонный кубический многочлен Эрмита (Фрич - Карлсон): не дает выбросов между узлами
+    PCHIP,
+    // Сплайн Акимы: производные по четырем соседним наклонам, устойчив к отдельным выбросам данных
+    AKIMA;
+
+    // Производные в узлах зависят от всех точек сразу (решается трехдиагональная система)
+    boolean isGlobal() {
+        return this == NATURAL_SPLINE || this == CLAMPED_SPLINE;
+    }
+}
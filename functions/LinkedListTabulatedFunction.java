@@ -1,5 +1,9 @@
 package functions;
 
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.function.DoubleUnaryOperator;
+
 public class LinkedListTabulatedFunction implements TabulatedFunction {
     
     // внутренний класс для элемента списка 
@@ -8,6 +12,8 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         private FunctionPoint point;          // точки (значение x и y)
         private FunctionNode prev;            // ссылка на предыдущий узел в списке
         private FunctionNode next;            // ссылка на следующий узел 
+        private FunctionNode[] skipNext;      // ссылки вперед на уровнях индекса (null, если узел не входит в индекс)
+        private int[] skipWidth;              // сколько узлов перепрыгивает каждая ссылка skipNext
         
         // конструктор с точкой
         FunctionNode(FunctionPoint point) {
@@ -57,6 +63,20 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
     private int pointsCount;                    // кол-во точек в списке
     private FunctionNode lastAccessedNode;      // последний элемент к которому обращались
     private int lastAccessedIndex;              // номер последнего элемента к которому обращались
+    private int modCount;                       // число добавлений и удалений узлов (для курсоров)
+    private FunctionMetrics.Table metrics;      // счетчики таблицы для метрик (null, если функция не названа)
+
+    // вспомогательный индекс (skip list) поверх списка, включается через setIndexed(true)
+    private static final int MAX_INDEX_LEVEL = 32;   // максимальное число уровней индекса
+    private static final int INDEX_WALK_LIMIT = 16;  // на сколько узлов выгоднее пройти по списку, чем искать по индексу
+    private boolean indexed;                    // включен ли индекс
+    private int indexLevels;                    // текущее число уровней индекса
+    private int indexSeed = 0x2545F491;         // состояние генератора случайных уровней
+    private FunctionNode[] indexUpdate;         // предшественники на каждом уровне (буфер для вставки и удаления)
+    private int[] indexRank;                    // номера этих предшественников
+
+    private boolean uniform;                    // точки по-прежнему стоят с равным шагом (сетка из конструктора не менялась)
+    private double uniformStep;                 // шаг равномерной сетки
   
     // конструктор по умолчанию
     public LinkedListTabulatedFunction() {
@@ -77,6 +97,8 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         
         // создаем точки с равномерным распределением
         double step = (rightX - leftX) / (pointsCount - 1);
+        uniform = true;
+        uniformStep = step;
         for (int i = 0; i < pointsCount; i++) {
             double x = leftX + i * step;
             double y = 0; // начальное значение Y
@@ -87,6 +109,12 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         }
     }
     
+    // конструктор с равномерной сеткой и значениями Y = generator(X) (для больших таблиц - параллельно)
+    public LinkedListTabulatedFunction(double leftX, double rightX, int pointsCount, DoubleUnaryOperator generator) {
+        this(leftX, rightX, pointsCount);
+        fillY(generator);
+    }
+    
     // конструктор с заданными значениями Y
     public LinkedListTabulatedFunction(double leftX, double rightX, double[] values) {
         // проверка условий
@@ -101,6 +129,8 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         
         // создаем точки с заданными значениями Y
         double step = (rightX - leftX) / (values.length - 1);
+        uniform = true;
+        uniformStep = step;
         for (int i = 0; i < values.length; i++) {
             double x = leftX + i * step;
             double y = values[i];
@@ -111,6 +141,32 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         }
     }
     
+    // конструктор с произвольной (не обязательно равномерной) сеткой
+    public LinkedListTabulatedFunction(double[] xs, double[] ys) {
+        TabulatedFunctions.checkPoints(xs, ys);
+        
+        initEmptyList();
+        for (int i = 0; i < xs.length; i++) {
+            addNodeToTail().setPoint(new FunctionPoint(xs[i], ys[i]));
+        }
+    }
+
+    // конструктор по массиву точек (точки копируются)
+    public LinkedListTabulatedFunction(FunctionPoint[] points) {
+        this(TabulatedFunctions.xsOf(points), TabulatedFunctions.ysOf(points));
+    }
+
+    // фабрика, создающая функции этого класса
+    public static class LinkedListTabulatedFunctionFactory implements TabulatedFunctionFactory {
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values) {
+            return new LinkedListTabulatedFunction(leftX, rightX, values);
+        }
+
+        public TabulatedFunction createTabulatedFunction(double[] xs, double[] ys) {
+            return new LinkedListTabulatedFunction(xs, ys);
+        }
+    }
+    
     // инициализация пустого списка
     private void initEmptyList() {
         // создаем голову списка - специальный узел без данных
@@ -121,12 +177,255 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         pointsCount = 0;     
         lastAccessedNode = head;      
         lastAccessedIndex = -1;       // индекс -1, так как нет реальных узлов
+        if (indexed) {
+            buildIndex();
+        }
+    }
+
+    // РАБОТА С ИНДЕКСОМ
+    //
+    // Над двусвязным списком строится индексируемый skip list: узел с уровнем h хранит h ссылок
+    // вперед (skipNext) и длины этих прыжков в узлах (skipWidth). Голова имеет все уровни.
+    // Поиск по номеру и по x, вставка и удаление узла выполняются за ожидаемое O(log n)
+
+    // включен ли индекс
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    // называет функцию для метрик: ее счетчики дополнительно копятся в FunctionMetrics.table(name),
+    // null - только общие счетчики
+    public void setMetricsName(String name) {
+        metrics = name == null ? null : FunctionMetrics.table(name);
+    }
+
+    // включает (строит за O(n)) или выключает индекс
+    public void setIndexed(boolean indexed) {
+        if (this.indexed == indexed) {
+            return;
+        }
+        this.indexed = indexed;
+        if (indexed) {
+            buildIndex();
+        } else {
+            // отбрасываем башни всех узлов
+            FunctionNode node = head;
+            do {
+                node.skipNext = null;
+                node.skipWidth = null;
+                node = node.getNext();
+            } while (node != head);
+            indexLevels = 0;
+            indexUpdate = null;
+            indexRank = null;
+        }
+    }
+
+    // строит индекс по текущему списку за один проход
+    private void buildIndex() {
+        head.skipNext = new FunctionNode[MAX_INDEX_LEVEL];
+        head.skipWidth = new int[MAX_INDEX_LEVEL];
+        indexUpdate = new FunctionNode[MAX_INDEX_LEVEL];
+        indexRank = new int[MAX_INDEX_LEVEL];
+        indexLevels = 0;
+
+        // последние узлы на каждом уровне и их номера
+        for (int level = 0; level < MAX_INDEX_LEVEL; level++) {
+            indexUpdate[level] = head;
+            indexRank[level] = -1;
+        }
+
+        int index = 0;
+        for (FunctionNode node = head.getNext(); node != head; node = node.getNext(), index++) {
+            int height = randomLevel();
+            if (height == 0) {
+                node.skipNext = null;
+                node.skipWidth = null;
+                continue;
+            }
+            node.skipNext = new FunctionNode[height];
+            node.skipWidth = new int[height];
+            for (int level = 0; level < height; level++) {
+                FunctionNode prev = indexUpdate[level];
+                prev.skipNext[level] = node;
+                prev.skipWidth[level] = index - indexRank[level];
+                indexUpdate[level] = node;
+                indexRank[level] = index;
+            }
+            if (height > indexLevels) {
+                indexLevels = height;
+            }
+        }
+    }
+
+    // случайный уровень узла: P(уровень >= k) = 2^-k (xorshift, чтобы не зависеть от java.util)
+    private int randomLevel() {
+        int seed = indexSeed;
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        indexSeed = seed;
+        return Math.min(Integer.numberOfTrailingZeros(seed), MAX_INDEX_LEVEL);
+    }
+
+    // поиск узла по номеру через индекс (число пройденных шагов записывается в метрики)
+    private FunctionNode findNodeByRank(int index) {
+        FunctionNode node = head;
+        int rank = -1;
+        int steps = 0;
+        for (int level = indexLevels - 1; level >= 0; level--) {
+            while (node.skipNext[level] != null && rank + node.skipWidth[level] <= index) {
+                rank += node.skipWidth[level];
+                node = node.skipNext[level];
+                steps++;
+            }
+        }
+        // оставшиеся шаги по нижнему уровню - самому списку
+        while (rank < index) {
+            node = node.getNext();
+            rank++;
+            steps++;
+        }
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordSearch(metrics, steps);
+        }
+        return node;
+    }
+
+    // заполняет indexUpdate/indexRank последними узлами с номером меньше index на каждом уровне
+    // и возвращает узел с номером index - 1 (голову, если index = 0)
+    private FunctionNode findIndexPredecessors(int index) {
+        FunctionNode node = head;
+        int rank = -1;
+        for (int level = indexLevels - 1; level >= 0; level--) {
+            while (node.skipNext[level] != null && rank + node.skipWidth[level] < index) {
+                rank += node.skipWidth[level];
+                node = node.skipNext[level];
+            }
+            indexUpdate[level] = node;
+            indexRank[level] = rank;
+        }
+        while (rank < index - 1) {
+            node = node.getNext();
+            rank++;
+        }
+        return node;
+    }
+
+    // включает в индекс узел, только что вставленный в список под номером index
+    // (indexUpdate/indexRank должны быть заполнены findIndexPredecessors(index))
+    private void linkIntoIndex(FunctionNode newNode, int index) {
+        int height = randomLevel();
+        // новые уровни начинаются от головы
+        for (int level = indexLevels; level < height; level++) {
+            head.skipNext[level] = null;
+            indexUpdate[level] = head;
+            indexRank[level] = -1;
+        }
+        if (height > indexLevels) {
+            indexLevels = height;
+        }
+
+        if (height > 0) {
+            newNode.skipNext = new FunctionNode[height];
+            newNode.skipWidth = new int[height];
+        }
+        for (int level = 0; level < height; level++) {
+            FunctionNode prev = indexUpdate[level];
+            newNode.skipNext[level] = prev.skipNext[level];
+            if (prev.skipNext[level] != null) {
+                newNode.skipWidth[level] = prev.skipWidth[level] - (index - indexRank[level]) + 1;
+            }
+            prev.skipNext[level] = newNode;
+            prev.skipWidth[level] = index - indexRank[level];
+        }
+        // ссылки выше башни нового узла теперь перепрыгивают на один узел больше
+        for (int level = height; level < indexLevels; level++) {
+            FunctionNode prev = indexUpdate[level];
+            if (prev.skipNext[level] != null) {
+                prev.skipWidth[level]++;
+            }
+        }
+    }
+
+    // исключает из индекса узел, удаляемый из списка
+    // (indexUpdate должен быть заполнен findIndexPredecessors для его номера)
+    private void unlinkFromIndex(FunctionNode node) {
+        for (int level = 0; level < indexLevels; level++) {
+            FunctionNode prev = indexUpdate[level];
+            if (prev.skipNext[level] == node) {
+                prev.skipNext[level] = node.skipNext[level];
+                if (node.skipNext[level] != null) {
+                    prev.skipWidth[level] += node.skipWidth[level] - 1;
+                }
+            } else if (prev.skipNext[level] != null) {
+                prev.skipWidth[level]--;
+            }
+        }
+        // убираем опустевшие верхние уровни
+        while (indexLevels > 0 && head.skipNext[indexLevels - 1] == null) {
+            indexLevels--;
+        }
+        node.skipNext = null;
+        node.skipWidth = null;
+    }
+
+    // последний узел, у которого x не больше заданного (голова, если такого нет)
+    private FunctionNode findNodeByX(double x) {
+        FunctionNode node = head;
+        int steps = 0;
+        if (indexed) {
+            for (int level = indexLevels - 1; level >= 0; level--) {
+                while (node.skipNext[level] != null && node.skipNext[level].getPoint().getX() <= x) {
+                    node = node.skipNext[level];
+                    steps++;
+                }
+            }
+        }
+        while (node.getNext() != head && node.getNext().getPoint().getX() <= x) {
+            node = node.getNext();
+            steps++;
+        }
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordSearch(metrics, steps);
+        }
+        return node;
+    }
+
+    // номер последнего узла, у которого x не больше заданного (-1, если такого нет)
+    private int findIndexByX(double x) {
+        FunctionNode node = head;
+        int rank = -1;
+        if (indexed) {
+            for (int level = indexLevels - 1; level >= 0; level--) {
+                while (node.skipNext[level] != null && node.skipNext[level].getPoint().getX() <= x) {
+                    rank += node.skipWidth[level];
+                    node = node.skipNext[level];
+                }
+            }
+        }
+        while (node.getNext() != head && node.getNext().getPoint().getX() <= x) {
+            node = node.getNext();
+            rank++;
+        }
+        return rank;
     }
     
     // метод для получения узла по индексу 
     private FunctionNode getNodeByIndex(int index) {
+        FunctionNode current = findNode(index);
+        
+        // сохраняем найденный узел
+        lastAccessedNode = current;
+        lastAccessedIndex = index;
+        
+        return current;
+    }
+
+    // поиск узла по индексу без запоминания найденного (lastAccessedNode только читается)
+    private FunctionNode findNode(int index) {
         if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("Индекс за границами: " + index);
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
         }
         
         FunctionNode current;  // текущий узел
@@ -155,6 +454,19 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
             current = head.getNext(); 
             currentIndex = 0;
         }
+
+        if (FunctionMetrics.ENABLED) {
+            // попадание - обход начинается от последнего узла, к которому обращались
+            FunctionMetrics.recordNodeCache(metrics, current == lastAccessedNode);
+        }
+
+        // далеко идти по списку - спускаемся по индексу (спуск сам записывает число шагов)
+        if (indexed && Math.abs(index - currentIndex) > INDEX_WALK_LIMIT) {
+            current = findNodeByRank(index);
+            currentIndex = index;
+        } else if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordSearch(metrics, Math.abs(index - currentIndex));
+        }
         
         // двигаемся к нужному узлу
         while (currentIndex != index) {
@@ -169,17 +481,15 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
             }
         }
         
-        // сохраняем найденный узел
-        lastAccessedNode = current;
-        lastAccessedIndex = currentIndex;
-        
         return current;
     }
     
     // метод для добавления узла в конец списка
     private FunctionNode addNodeToTail() {
-        FunctionPoint newPoint = new FunctionPoint(0, 0); // создаем новую точку с нулевыми координатами
-        FunctionNode newNode = new FunctionNode(newPoint);      // создаем новый узел для этой точки
+        if (indexed) {
+            return addNodeByIndex(pointsCount);  // узел нужно также включить в индекс
+        }
+        FunctionNode newNode = new FunctionNode(null);  // новый узел, точку в него кладет вызывающий метод
         FunctionNode tail = head.getPrev();
         
         // новый узел становится между tail и head
@@ -193,6 +503,7 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         head.setPrev(newNode);   // предыдущий для головы
         
         pointsCount++;  // увеличиваем счетчик точек
+        modCount++;
         
         return newNode; 
     }
@@ -200,17 +511,18 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
     // метод для добавления узла по индексу
     private FunctionNode addNodeByIndex(int index) {
         if (index < 0 || index > pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("индекс за границами: " + index);
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
         }
         
-        // создаем новую точку
-        FunctionPoint newPoint = new FunctionPoint(0, 0);
-        // создаем новый узел для этой точки
-        FunctionNode newNode = new FunctionNode(newPoint);
+        // создаем новый узел, точку в него кладет вызывающий метод
+        FunctionNode newNode = new FunctionNode(null);
         
         // определяем где будем вставлять
         FunctionNode current;
-        if (index == pointsCount) {
+        if (indexed) {
+            // предшественники на всех уровнях понадобятся для вставки в индекс
+            current = findIndexPredecessors(index).getNext();
+        } else if (index == pointsCount) {
             // вставка в конец - перед головой
             current = head;
         } else {
@@ -229,6 +541,11 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         current.setPrev(newNode);   // предыдущий для current - новый узел
         
         pointsCount++;  
+        modCount++;
+
+        if (indexed) {
+            linkIntoIndex(newNode, index);
+        }
         
         lastAccessedNode = newNode;  // новый узел становится последним доступным
         lastAccessedIndex = index;   // сохраняем его индекс
@@ -239,11 +556,17 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
     // метод для удаления узла по указанному индексу
     private FunctionNode deleteNodeByIndex(int index) {
         if (index < 0 || index >= pointsCount) {
-            throw new FunctionPointIndexOutOfBoundsException("индекс за границами: " + index);
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
         }
         
         // находим узел для удаления
-        FunctionNode nodeToDelete = getNodeByIndex(index);
+        FunctionNode nodeToDelete;
+        if (indexed) {
+            nodeToDelete = findIndexPredecessors(index).getNext();
+            unlinkFromIndex(nodeToDelete);
+        } else {
+            nodeToDelete = getNodeByIndex(index);
+        }
         
         // получаем соседние узлы
         FunctionNode prevNode = nodeToDelete.getPrev();  
@@ -255,10 +578,13 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         nextNode.setPrev(prevNode);  // предыдущий для nextNode - prevNode
         
         pointsCount--;  
+        modCount++;
         
         if (lastAccessedNode == nodeToDelete) {
             lastAccessedNode = head;     
             lastAccessedIndex = -1;       // индекс сбрасываем
+        } else if (lastAccessedIndex > index) {
+            lastAccessedIndex--;          // узлы после удаленного сдвинулись на один номер
         }
         
         return nodeToDelete;
@@ -272,19 +598,36 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         FunctionNode node = getNodeByIndex(index);
         return new FunctionPoint(node.getPoint());  // возвращаем копию точки
     }
+
+    // записывает координаты точки в переданный объект вместо создания копии
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        FunctionPoint point = getNodeByIndex(index).getPoint();
+        if (reuse == null) {
+            return new FunctionPoint(point);
+        }
+        reuse.setX(point.getX());
+        reuse.setY(point.getY());
+        return reuse;
+    }
     
     public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
         FunctionNode node = getNodeByIndex(index);
         
-        // проверяем упорядоченность X с машинным эпсилоном
-        if (index > 0 && point.getX() <= getNodeByIndex(index - 1).getPoint().getX() + 1e-10) {
+        // проверяем упорядоченность X с машинным эпсилоном (соседи - соседние узлы списка)
+        if (index > 0 && point.getX() <= node.getPrev().getPoint().getX() + 1e-10) {
             throw new InappropriateFunctionPointException("X точки должен быть больше предыдущего");
         }
-        if (index < pointsCount - 1 && point.getX() >= getNodeByIndex(index + 1).getPoint().getX() - 1e-10) {
+        if (index < pointsCount - 1 && point.getX() >= node.getNext().getPoint().getX() - 1e-10) {
             throw new InappropriateFunctionPointException("X точки должен быть меньше следующего");
         }
         
-        node.setPoint(new FunctionPoint(point));
+        FunctionPoint currentPoint = node.getPoint();
+        if (point.getX() != currentPoint.getX()) {
+            uniform = false;  // узел сдвинут - сетка больше не равномерная
+        }
+        // точка принадлежит только узлу, поэтому меняем ее на месте
+        currentPoint.setX(point.getX());
+        currentPoint.setY(point.getY());
     }
     
     public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
@@ -296,15 +639,18 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         FunctionNode node = getNodeByIndex(index);
         FunctionPoint currentPoint = node.getPoint();
         
-        // проверяем упорядоченность X с машинным эпсилоном
-        if (index > 0 && x <= getNodeByIndex(index - 1).getPoint().getX() + 1e-10) {
+        // проверяем упорядоченность X с машинным эпсилоном (соседи - соседние узлы списка)
+        if (index > 0 && x <= node.getPrev().getPoint().getX() + 1e-10) {
             throw new InappropriateFunctionPointException("X точки должен быть больше предыдущего");
         }
-        if (index < pointsCount - 1 && x >= getNodeByIndex(index + 1).getPoint().getX() - 1e-10) {
+        if (index < pointsCount - 1 && x >= node.getNext().getPoint().getX() - 1e-10) {
             throw new InappropriateFunctionPointException("X точки должен быть меньше следующего");
         }
         
-        node.setPoint(new FunctionPoint(x, currentPoint.getY()));
+        if (x != currentPoint.getX()) {
+            uniform = false;  // узел сдвинут - сетка больше не равномерная
+        }
+        currentPoint.setX(x);  // меняем точку на месте
     }
     
     public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
@@ -313,11 +659,8 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
     }
     
     public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
-        FunctionNode node = getNodeByIndex(index);
-        FunctionPoint currentPoint = node.getPoint();
-        
-        // создаем новую точку с обновленным Y
-        node.setPoint(new FunctionPoint(currentPoint.getX(), y));
+        // меняем Y прямо в точке узла
+        getNodeByIndex(index).getPoint().setY(y);
     }
     
     public void deletePoint(int index) throws IllegalStateException, FunctionPointIndexOutOfBoundsException {
@@ -326,30 +669,81 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
             throw new IllegalStateException("нельзя удалить точку: должно остаться минимум 2 точки");
         }
         
+        // удаление крайней точки сохраняет равный шаг, внутренней - нарушает
+        if (index > 0 && index < pointsCount - 1) {
+            uniform = false;
+        }
+        
         // используем наш метод для удаления узла
         deleteNodeByIndex(index);
     }
     
     public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
-        // ищем позицию для вставки и проверяем на дубликат X
-        int insertIndex = pointsCount;
-        
-        for (int i = 0; i < pointsCount; i++) {
-            double currentX = getPointX(i);
-            // Используем машинный эпсилон для сравнения вещественных чисел
-            if (Math.abs(currentX - point.getX()) < 1e-10) {
-                throw new InappropriateFunctionPointException("точка с таким X уже существует");
-            }
-            if (currentX > point.getX()) {
-                insertIndex = i;
-                break;
-            }
+        double x = point.getX();
+
+        // позиция для вставки - сразу после последнего узла с X не больше нового
+        // (с индексом за O(log n), без него - один проход по узлам)
+        int insertIndex = findIndexByX(x) + 1;
+
+        // проверяем обоих соседей на дубликат X (используя машинный эпсилон)
+        if (insertIndex > 0 && Math.abs(getNodeByIndex(insertIndex - 1).getPoint().getX() - x) < 1e-10) {
+            throw new InappropriateFunctionPointException("точка с таким X уже существует");
+        }
+        if (insertIndex < pointsCount && Math.abs(getNodeByIndex(insertIndex).getPoint().getX() - x) < 1e-10) {
+            throw new InappropriateFunctionPointException("точка с таким X уже существует");
         }
         
+        uniform = false;  // новая точка нарушает равный шаг сетки
+        
         // добавляем узел в найденную позицию
         FunctionNode newNode = addNodeByIndex(insertIndex);
         newNode.setPoint(new FunctionPoint(point));
     }
+
+    // добавляет набор точек за O(n + k log k): набор сортируется, сверяется с узлами
+    // и вплетается в список за один проход слева направо (индекс, если включен, перестраивается за O(n))
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        double[] batchXs = xs.clone();
+        double[] batchYs = ys.clone();
+        TabulatedFunctions.sortBatch(batchXs, batchYs);
+
+        // сверяем набор с узлами, пока список не изменен
+        FunctionNode node = head.getNext();
+        for (double x : batchXs) {
+            while (node != head && node.getPoint().getX() <= x - 1e-10) {
+                node = node.getNext();
+            }
+            if (node != head && Math.abs(node.getPoint().getX() - x) < 1e-10) {
+                throw new InappropriateFunctionPointException("точка с таким X уже существует");
+            }
+        }
+        if (batchXs.length == 0) {
+            return;
+        }
+
+        uniform = false;  // новые точки нарушают равный шаг сетки
+        boolean wasIndexed = indexed;
+        setIndexed(false);
+
+        // prev - последний узел с X меньше текущей точки набора, новые узлы встают сразу за ним
+        FunctionNode prev = head;
+        for (int k = 0; k < batchXs.length; k++) {
+            while (prev.getNext() != head && prev.getNext().getPoint().getX() < batchXs[k]) {
+                prev = prev.getNext();
+            }
+            FunctionNode newNode = new FunctionNode(new FunctionPoint(batchXs[k], batchYs[k]), prev, prev.getNext());
+            prev.getNext().setPrev(newNode);
+            prev.setNext(newNode);
+            prev = newNode;
+        }
+        pointsCount += batchXs.length;
+        modCount++;
+
+        // номера узлов сдвинулись - запомненный узел больше не годится
+        lastAccessedNode = head;
+        lastAccessedIndex = -1;
+        setIndexed(wasIndexed);
+    }
     
     public double getLeftDomainBorder() {
         if (pointsCount == 0) return Double.NaN;  // если нет точек
@@ -361,34 +755,355 @@ public class LinkedListTabulatedFunction implements TabulatedFunction {
         return head.getPrev().getPoint().getX();  // X последней точки
     }
     
+    // при включенных метриках замеряется время вычисления (см. FunctionMetrics)
     public double getFunctionValue(double x) {
-        if (x < getLeftDomainBorder() || x > getRightDomainBorder()) {
+        if (!FunctionMetrics.ENABLED) {
+            return value(x);
+        }
+        long start = System.nanoTime();
+        double y = value(x);
+        FunctionMetrics.recordEvaluation(metrics, System.nanoTime() - start);
+        return y;
+    }
+
+    private double value(double x) {
+        // сравнение записано так, чтобы NaN тоже считался вне области определения
+        if (pointsCount < 2 || !(x >= getLeftDomainBorder() && x <= getRightDomainBorder())) {
+            if (FunctionMetrics.ENABLED) {
+                FunctionMetrics.recordOutOfDomain(metrics);
+            }
             return Double.NaN;  // если x вне области определения
         }
         
-        // ищем отрезок для интерполяции
-        for (int i = 0; i < pointsCount - 1; i++) {
-            double x1 = getPointX(i);
-            double x2 = getPointX(i + 1);
-            
-            // Проверяем совпадение с x1 (используя машинный эпсилон)
-            if (Math.abs(x - x1) < 1e-10) {
-                return getPointY(i);
+        // ищем отрезок для интерполяции, двигаясь по узлам напрямую
+        // (lastAccessedNode не меняется, поэтому чтение не портит кэш обращений по номеру)
+        FunctionNode left;
+        if (uniform) {
+            // равномерная сетка: номер отрезка вычисляется сразу, остается дойти до узла
+            // от ближайшего из концов списка или последнего узла, к которому обращались
+            int last = pointsCount - 2;
+            int i = (int) ((x - getLeftDomainBorder()) / uniformStep);
+            left = findNode(Math.min(i, last + 1));
+            // поправка на ошибку округления
+            if (left != head.getNext() && left.getPoint().getX() > x) {
+                left = left.getPrev();
+            } else if (left.getNext() != head && left.getNext().getPoint().getX() <= x) {
+                left = left.getNext();
             }
-            
-            // Проверяем совпадение с x2 (используя машинный эпсилон)
-            if (Math.abs(x - x2) < 1e-10) {
-                return getPointY(i + 1);
+        } else {
+            left = findNodeByX(x);
+        }
+        if (left.getNext() == head) {
+            // x совпадает с правой границей - берем последний отрезок
+            left = left.getPrev();
+        }
+        return valueOnSegment(left, x);
+    }
+
+    // пакетное вычисление: для упорядоченных аргументов узлы проходятся один раз слева направо
+    public void getFunctionValues(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        TabulatedFunctions.checkBatchRange(xs, xsOffset, out, outOffset, length);
+        if (pointsCount < 2 || !TabulatedFunctions.isSorted(xs, xsOffset, length)) {
+            // порядок произвольный - ищем отрезок для каждого аргумента отдельно
+            for (int k = 0; k < length; k++) {
+                out[outOffset + k] = getFunctionValue(xs[xsOffset + k]);
             }
+            return;
+        }
+
+        valuesSorted(xs, xsOffset, out, outOffset, length, head.getNext());
+    }
+
+    // значения для упорядоченных аргументов: отрезки ищутся движением вперед от узла left,
+    // у которого x не больше первого аргумента из области определения
+    private void valuesSorted(double[] xs, int xsOffset, double[] out, int outOffset, int length, FunctionNode left) {
+        double leftX = getLeftDomainBorder();
+        double rightX = getRightDomainBorder();
+        if (left.getNext() == head) {
+            left = left.getPrev();  // последний узел - левый конец последнего отрезка
+        }
+        for (int k = 0; k < length; k++) {
+            double x = xs[xsOffset + k];
+            if (x < leftX || x > rightX) {
+                out[outOffset + k] = Double.NaN;
+                continue;
+            }
+            while (left.getNext().getNext() != head && left.getNext().getPoint().getX() <= x) {
+                left = left.getNext();
+            }
+            out[outOffset + k] = valueOnSegment(left, x);
+        }
+    }
+
+    // ПАРАЛЛЕЛЬНЫЕ ОПЕРАЦИИ: список делится на отрезки узлов примерно равной длины,
+    // каждый отрезок обрабатывается отдельной задачей ForkJoinPool
+
+    // параллельное вычисление: упорядоченные аргументы делятся между отрезками узлов по x
+    // (каждая задача идет только по своим узлам), произвольные - по номерам
+    public double[] evaluateAll(double[] xs) {
+        double[] out = new double[xs.length];
+        if (pointsCount < 2 || xs.length < TabulatedFunctions.getParallelThreshold()) {
+            getFunctionValues(xs, out);
+        } else if (!TabulatedFunctions.isSorted(xs, 0, xs.length)) {
+            // getFunctionValue не меняет полей, поэтому его можно вызывать из нескольких потоков
+            TabulatedFunctions.forEachRange(0, xs.length, (from, to) -> {
+                for (int k = from; k < to; k++) {
+                    out[k] = getFunctionValue(xs[k]);
+                }
+            });
+        } else {
+            forEachNodeSegment((first, end) -> {
+                // аргументы от x первого узла отрезка до x первого узла следующего
+                int from = first == head.getNext() ? 0 : TabulatedFunctions.lowerBound(xs, 0, xs.length, first.getPoint().getX());
+                int to = end == head ? xs.length : TabulatedFunctions.lowerBound(xs, from, xs.length, end.getPoint().getX());
+                valuesSorted(xs, from, out, from, to - from, first);
+            });
+        }
+        return out;
+    }
+
+    public void mapY(DoubleUnaryOperator operator) {
+        forEachNodeSegment((first, end) -> {
+            for (FunctionNode node = first; node != end; node = node.getNext()) {
+                node.getPoint().setY(operator.applyAsDouble(node.getPoint().getY()));
+            }
+        });
+    }
+
+    public void fillY(DoubleUnaryOperator function) {
+        forEachNodeSegment((first, end) -> {
+            for (FunctionNode node = first; node != end; node = node.getNext()) {
+                node.getPoint().setY(function.applyAsDouble(node.getPoint().getX()));
+            }
+        });
+    }
+
+    // обработка узлов от first включительно до end не включительно (end - голова для последнего отрезка)
+    private interface NodeSegmentAction {
+        void apply(FunctionNode first, FunctionNode end);
+    }
+
+    // делит список на отрезки и обрабатывает их; маленький список - один отрезок в текущем потоке
+    private void forEachNodeSegment(NodeSegmentAction action) {
+        if (pointsCount == 0) {
+            return;
+        }
+        int parts = TabulatedFunctions.parallelParts(pointsCount);
+        int partLength = (pointsCount + parts - 1) / parts;
+        int partsCount = (pointsCount + partLength - 1) / partLength;
+
+        // начала отрезков: через индекс за O(log n) каждое, без него - одним проходом по списку
+        FunctionNode[] starts = new FunctionNode[partsCount + 1];
+        if (indexed) {
+            for (int part = 0; part < partsCount; part++) {
+                starts[part] = findNodeByRank(part * partLength);
+            }
+        } else {
+            FunctionNode node = head.getNext();
+            for (int i = 0; i < pointsCount; i++, node = node.getNext()) {
+                if (i % partLength == 0) {
+                    starts[i / partLength] = node;
+                }
+            }
+        }
+        starts[partsCount] = head;
+
+        TabulatedFunctions.forEachPart(partsCount, (from, to) -> {
+            for (int part = from; part < to; part++) {
+                action.apply(starts[part], starts[part + 1]);
+            }
+        });
+    }
+
+    // значение на отрезке от узла left до следующего за ним с привязкой к узлам
+    private double valueOnSegment(FunctionNode left, double x) {
+        FunctionNode right = left.getNext();
+        double x1 = left.getPoint().getX();
+        double x2 = right.getPoint().getX();
             
-            if (x > x1 && x < x2) {
-                // линейная интерполяция
-                double y1 = getPointY(i);
-                double y2 = getPointY(i + 1);
-                return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+        // Проверяем совпадение с x1 (используя машинный эпсилон)
+        if (Math.abs(x - x1) < 1e-10) {
+            return left.getPoint().getY();
+        }
+            
+        // Проверяем совпадение с x2 (используя машинный эпсилон)
+        if (Math.abs(x - x2) < 1e-10) {
+            return right.getPoint().getY();
+        }
+            
+        // линейная интерполяция
+        double y1 = left.getPoint().getY();
+        double y2 = right.getPoint().getY();
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+    }
+
+    // ЗАМЕНА ВСЕХ ТОЧЕК
+
+    // один проход по списку: узлы получают новые точки по порядку, недостающие узлы
+    // добавляются в конец, лишние отрезаются целиком; индекс строится заново один раз
+    public void setPoints(double[] xs, double[] ys) {
+        TabulatedFunctions.checkPoints(xs, ys);
+        boolean wasIndexed = indexed;
+        setIndexed(false);
+
+        FunctionNode node = head.getNext();
+        int k = 0;
+        for (; k < xs.length && node != head; k++, node = node.getNext()) {
+            node.getPoint().setX(xs[k]);
+            node.getPoint().setY(ys[k]);
+        }
+        if (node != head) {
+            // отрезаем узлы от node до хвоста
+            FunctionNode last = node.getPrev();
+            last.setNext(head);
+            head.setPrev(last);
+        }
+        FunctionNode tail = head.getPrev();
+        for (; k < xs.length; k++) {
+            FunctionNode newNode = new FunctionNode(new FunctionPoint(xs[k], ys[k]), tail, head);
+            tail.setNext(newNode);
+            head.setPrev(newNode);
+            tail = newNode;
+        }
+        pointsCount = xs.length;
+        uniform = false;
+        modCount++;
+
+        // номера узлов могли сдвинуться - запомненный узел больше не годится
+        lastAccessedNode = head;
+        lastAccessedIndex = -1;
+        setIndexed(wasIndexed);
+    }
+
+    // УПРОЩЕНИЕ
+
+    // удаляет лишние узлы (см. TabulatedFunction.simplify) одним проходом по списку:
+    // каждый лишний узел выключается из списка за O(1), без поиска по номеру
+    public void simplify(double maxError) {
+        double[] xs = new double[pointsCount];
+        double[] ys = new double[pointsCount];
+        FunctionNode node = head.getNext();
+        for (int i = 0; i < pointsCount; i++, node = node.getNext()) {
+            xs[i] = node.getPoint().getX();
+            ys[i] = node.getPoint().getY();
+        }
+        boolean[] keep = TabulatedFunctions.simplificationMask(xs, ys, pointsCount, maxError);
+
+        boolean wasIndexed = indexed;
+        setIndexed(false);
+        int count = pointsCount;
+        node = head.getNext();
+        for (int i = 0; i < keep.length; i++) {
+            FunctionNode next = node.getNext();
+            if (!keep[i]) {
+                node.getPrev().setNext(next);
+                next.setPrev(node.getPrev());
+                count--;
             }
+            node = next;
         }
-        
-        return Double.NaN;
+        if (count != pointsCount) {
+            pointsCount = count;
+            uniform = false;  // удалены внутренние узлы
+            modCount++;
+            // номера узлов сдвинулись - запомненный узел больше не годится
+            lastAccessedNode = head;
+            lastAccessedIndex = -1;
+        }
+        setIndexed(wasIndexed);
+    }
+
+    // ОБХОД ТОЧЕК
+
+    // курсор идет по ссылкам узлов: полный проход - O(n) без поиска по номеру,
+    // lastAccessedNode при этом не меняется
+    public FunctionPointCursor cursor(int index) {
+        if (index < 0 || index > pointsCount) {
+            throw new FunctionPointIndexOutOfBoundsException("Позиция курсора " + index + " выходит за границы набора точек");
+        }
+        return new NodeCursor(index == pointsCount ? head : findNode(index), index);
+    }
+
+    private class NodeCursor implements FunctionPointCursor {
+        private FunctionNode nextNode;           // узел, через который перейдет next() (голова - конец списка)
+        private FunctionNode currentNode;        // текущий узел (null, пока курсор не двигали)
+        private int nextIndex;                   // номер узла nextNode
+        private final int expectedModCount = modCount;
+
+        NodeCursor(FunctionNode nextNode, int nextIndex) {
+            this.nextNode = nextNode;
+            this.nextIndex = nextIndex;
+        }
+
+        public boolean hasNext() {
+            return nextNode != head;
+        }
+
+        public boolean hasPrevious() {
+            return nextNode.getPrev() != head;
+        }
+
+        public void next() {
+            checkModification();
+            if (nextNode == head) {
+                throw new NoSuchElementException("После курсора нет точек");
+            }
+            currentNode = nextNode;
+            nextNode = nextNode.getNext();
+            nextIndex++;
+        }
+
+        public void previous() {
+            checkModification();
+            if (nextNode.getPrev() == head) {
+                throw new NoSuchElementException("Перед курсором нет точек");
+            }
+            nextNode = nextNode.getPrev();
+            currentNode = nextNode;
+            nextIndex--;
+        }
+
+        public int getIndex() {
+            if (currentNode == null) {
+                return -1;
+            }
+            // после next() текущий узел стоит перед nextNode, после previous() - совпадает с ним
+            return currentNode == nextNode ? nextIndex : nextIndex - 1;
+        }
+
+        public double getX() {
+            checkCurrent();
+            return currentNode.getPoint().getX();
+        }
+
+        public double getY() {
+            checkCurrent();
+            return currentNode.getPoint().getY();
+        }
+
+        private void checkCurrent() {
+            checkModification();
+            if (currentNode == null) {
+                throw new IllegalStateException("Курсор еще не перешел ни через одну точку");
+            }
+        }
+
+        private void checkModification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException("Точки функции изменились во время обхода");
+            }
+        }
+    }
+
+    // строковое представление функции: один проход по узлам
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (FunctionNode node = head.getNext(); node != head; node = node.getNext()) {
+            result.append(node.getPoint().toString());
+            if (node.getNext() != head) {
+                result.append("\n");
+            }
+        }
+        return result.toString();
     }
 }
\ No newline at end of file
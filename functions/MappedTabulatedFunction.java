@@ -0,0 +1,503 @@
+package functions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Табулированная функция, точки которой хранятся в файле, отображенном в память (FileChannel.map).
+//Данные не загружаются в кучу: открытие файла не требует разбора, а чтение и запись
+//точек идут прямо в отображение.
+//
+//Формат файла (little-endian):
+//  заголовок HEADER_SIZE байт: magic, версия, количество точек, емкость, флаги, шаг сетки;
+//  столбец x: capacity значений double;
+//  столбец y: capacity значений double.
+//Каждый столбец отображается отдельно, поэтому емкость ограничена MAX_CAPACITY (~2.7 * 10^8 точек)
+public class MappedTabulatedFunction implements TabulatedFunction, Closeable {
+    private static final int MAGIC = 0x5441424D;          // "TABM"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / Double.BYTES;
+    private static final int FLAG_UNIFORM = 1;            // точки стоят с равным шагом
+    private static final int MOVE_CHUNK = 1 << 16;        // размер куска при переносе столбца y
+
+    // смещения полей заголовка
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int FLAGS_OFFSET = 16;
+    private static final int STEP_OFFSET = 24;
+
+    private final FileChannel channel;
+    private MappedByteBuffer header;   // отображение заголовка
+    private MappedByteBuffer xsMap;    // отображение столбца x
+    private MappedByteBuffer ysMap;    // отображение столбца y
+    private DoubleBuffer xs;           // столбец x как массив double
+    private DoubleBuffer ys;           // столбец y как массив double
+    private int pointsCount;
+    private int capacity;
+    private boolean uniform;           // сетка из конструктора не менялась
+    private double uniformStep;
+    private int modCount;              // число добавлений и удалений точек (для курсоров)
+
+    // КОНСТРУКТОРЫ:
+
+    // Создает (или перезаписывает) файл с равномерной сеткой из pointsCount точек и y = 0
+    public MappedTabulatedFunction(Path file, double leftX, double rightX, int pointsCount) throws IOException {
+        this(file, leftX, rightX, pointsCount, null);
+    }
+
+    // Создает (или перезаписывает) файл с равномерной сеткой и заданными значениями y
+    public MappedTabulatedFunction(Path file, double leftX, double rightX, double[] values) throws IOException {
+        this(file, leftX, rightX, values.length, values);
+    }
+
+    private MappedTabulatedFunction(Path file, double leftX, double rightX, int pointsCount, double[] values) throws IOException {
+        if (leftX >= rightX) {
+            throw new IllegalArgumentException("Левая граница не может быть больше или равна правой");
+        }
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+        if (pointsCount > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Количество точек не может быть больше " + MAX_CAPACITY);
+        }
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            map(pointsCount);
+
+            double step = (rightX - leftX) / (pointsCount - 1);
+            for (int i = 0; i < pointsCount; i++) {
+                xs.put(i, leftX + i * step);
+            }
+            if (values != null) {
+                ys.put(0, values, 0, pointsCount);
+            }
+            this.pointsCount = pointsCount;
+            this.uniform = true;
+            this.uniformStep = step;
+
+            header.putInt(MAGIC_OFFSET, MAGIC);
+            header.putInt(VERSION_OFFSET, VERSION);
+            writeHeader();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Открывает существующий файл; данные не читаются, а только отображаются
+    public MappedTabulatedFunction(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Файл слишком короткий для заголовка: " + file);
+            }
+            MappedByteBuffer fileHeader = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            fileHeader.order(ByteOrder.LITTLE_ENDIAN);
+            if (fileHeader.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Файл не содержит табулированную функцию: " + file);
+            }
+            if (fileHeader.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Неподдерживаемая версия формата: " + fileHeader.getInt(VERSION_OFFSET));
+            }
+            int count = fileHeader.getInt(COUNT_OFFSET);
+            int fileCapacity = fileHeader.getInt(CAPACITY_OFFSET);
+            if (count < 2 || fileCapacity < count || fileCapacity > MAX_CAPACITY
+                    || channel.size() < HEADER_SIZE + 2L * fileCapacity * Double.BYTES) {
+                throw new IOException("Поврежденный заголовок: точек " + count + ", емкость " + fileCapacity);
+            }
+
+            map(fileCapacity);
+            this.pointsCount = count;
+            this.uniform = (header.getInt(FLAGS_OFFSET) & FLAG_UNIFORM) != 0;
+            this.uniformStep = header.getDouble(STEP_OFFSET);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Отображает заголовок и оба столбца для заданной емкости (файл при необходимости растет)
+    private void map(int newCapacity) throws IOException {
+        long columnBytes = (long) newCapacity * Double.BYTES;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        xsMap = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, columnBytes);
+        ysMap = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + columnBytes, columnBytes);
+        xs = xsMap.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        ys = ysMap.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        capacity = newCapacity;
+    }
+
+    // Записывает в заголовок изменяемые поля
+    private void writeHeader() {
+        header.putInt(COUNT_OFFSET, pointsCount);
+        header.putInt(CAPACITY_OFFSET, capacity);
+        header.putInt(FLAGS_OFFSET, uniform ? FLAG_UNIFORM : 0);
+        header.putDouble(STEP_OFFSET, uniformStep);
+    }
+
+    // Сбрасывает изменения отображения на диск
+    public void force() {
+        header.force();
+        xsMap.force();
+        ysMap.force();
+    }
+
+    // Закрывает файл. Отображение освобождается сборщиком мусора
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ФУНКЦИЕЙ
+    public double getLeftDomainBorder() {
+        return xs.get(0);
+    }
+
+    public double getRightDomainBorder() {
+        return xs.get(pointsCount - 1);
+    }
+
+    public double getFunctionValue(double x) {
+        if (x < xs.get(0) || x > xs.get(pointsCount - 1)) {
+            return Double.NaN;
+        }
+        return valueOnSegment(findSegmentIndex(x), x);
+    }
+
+    // Пакетное вычисление: для упорядоченных аргументов отрезки перебираются одним проходом
+    public void getFunctionValues(double[] args, int argsOffset, double[] out, int outOffset, int length) {
+        TabulatedFunctions.checkBatchRange(args, argsOffset, out, outOffset, length);
+        if (!TabulatedFunctions.isSorted(args, argsOffset, length)) {
+            for (int k = 0; k < length; k++) {
+                out[outOffset + k] = getFunctionValue(args[argsOffset + k]);
+            }
+            return;
+        }
+
+        double left = xs.get(0);
+        double right = xs.get(pointsCount - 1);
+        int last = pointsCount - 2;
+        int i = 0;
+        for (int k = 0; k < length; k++) {
+            double x = args[argsOffset + k];
+            if (x < left || x > right) {
+                out[outOffset + k] = Double.NaN;
+                continue;
+            }
+            while (i < last && xs.get(i + 1) <= x) {
+                i++;
+            }
+            out[outOffset + k] = valueOnSegment(i, x);
+        }
+    }
+
+    // Номер отрезка, содержащего x (x в области определения)
+    private int findSegmentIndex(double x) {
+        int last = pointsCount - 2;
+
+        // Равномерная сетка: номер вычисляется сразу, с поправкой на округление
+        if (uniform) {
+            int i = (int) ((x - xs.get(0)) / uniformStep);
+            if (i > last) {
+                i = last;
+            }
+            if (i > 0 && xs.get(i) > x) {
+                i--;
+            } else if (i < last && xs.get(i + 1) <= x) {
+                i++;
+            }
+            return i;
+        }
+
+        // Бинарный поиск последней точки с x(i) <= x
+        int low = 0;
+        int high = last;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (xs.get(mid) <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // Значение на отрезке [x(i), x(i+1)] с привязкой к узлам
+    private double valueOnSegment(int i, double x) {
+        double x1 = xs.get(i);
+        double x2 = xs.get(i + 1);
+        if (Math.abs(x - x1) < 1e-10) {
+            return ys.get(i);
+        }
+        if (Math.abs(x - x2) < 1e-10) {
+            return ys.get(i + 1);
+        }
+        double y1 = ys.get(i);
+        return y1 + (ys.get(i + 1) - y1) * (x - x1) / (x2 - x1);
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ТОЧКАМИ:
+
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return new FunctionPoint(xs.get(index), ys.get(index));
+    }
+
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        if (reuse == null) {
+            return new FunctionPoint(xs.get(index), ys.get(index));
+        }
+        reuse.setX(xs.get(index));
+        reuse.setY(ys.get(index));
+        return reuse;
+    }
+
+    public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        checkIndex(index);
+        checkOrder(index, point.getX());
+        if (point.getX() != xs.get(index)) {
+            uniform = false;
+            writeHeader();
+        }
+        xs.put(index, point.getX());
+        ys.put(index, point.getY());
+    }
+
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return xs.get(index);
+    }
+
+    public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        checkIndex(index);
+        checkOrder(index, x);
+        if (x != xs.get(index)) {
+            uniform = false;
+            writeHeader();
+        }
+        xs.put(index, x);
+    }
+
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return ys.get(index);
+    }
+
+    public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        ys.put(index, y);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= pointsCount) {
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
+        }
+    }
+
+    private void checkOrder(int index, double x) throws InappropriateFunctionPointException {
+        if (index > 0 && x <= xs.get(index - 1) + 1e-10) {
+            throw new InappropriateFunctionPointException("Новый X " + x + " должен быть больше чем " + xs.get(index - 1) + " (X левого соседа)");
+        }
+        if (index < pointsCount - 1 && x >= xs.get(index + 1) - 1e-10) {
+            throw new InappropriateFunctionPointException("Новый X " + x + " должен быть меньше чем " + xs.get(index + 1) + " (X правого соседа)");
+        }
+    }
+
+    // МЕТОДЫ ДЛЯ ИЗМЕНЕНИЯ КОЛИЧЕСТВА ТОЧЕК:
+    // Удаление и вставка в середину сдвигают хвост столбцов прямо в файле (O(n)),
+    // добавление в конец - амортизированно O(1)
+
+    public void deletePoint(int index) throws IllegalStateException, FunctionPointIndexOutOfBoundsException {
+        if (pointsCount <= 2) {
+            throw new IllegalStateException("Нельзя удалять точки: минимальное количество точек - 3");
+        }
+        checkIndex(index);
+
+        if (index != 0 && index != pointsCount - 1) {
+            uniform = false;
+        }
+        // Сдвигаем хвосты столбцов влево
+        for (int i = index; i < pointsCount - 1; i++) {
+            xs.put(i, xs.get(i + 1));
+            ys.put(i, ys.get(i + 1));
+        }
+        pointsCount--;
+        modCount++;
+        writeHeader();
+    }
+
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        double x = point.getX();
+
+        // Бинарный поиск первой точки с x(i) >= x
+        int low = 0;
+        int high = pointsCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs.get(mid) < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int insertIndex = low;
+
+        if ((insertIndex < pointsCount && Math.abs(xs.get(insertIndex) - x) < 1e-10)
+                || (insertIndex > 0 && Math.abs(xs.get(insertIndex - 1) - x) < 1e-10)) {
+            throw new InappropriateFunctionPointException("Точка с x=" + x + " уже существует в функции");
+        }
+
+        ensureCapacity(pointsCount + 1);
+
+        // Сдвигаем хвосты столбцов вправо (при добавлении в конец цикл пуст)
+        for (int i = pointsCount; i > insertIndex; i--) {
+            xs.put(i, xs.get(i - 1));
+            ys.put(i, ys.get(i - 1));
+        }
+        xs.put(insertIndex, x);
+        ys.put(insertIndex, point.getY());
+        pointsCount++;
+        modCount++;
+        uniform = false;
+        writeHeader();
+    }
+
+    // Добавляет набор точек за O(n + k log k): набор сортируется и сверяется со столбцом x,
+    // затем сливается с точками прямо в файле, с конца - каждая точка сдвигается один раз
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        double[] batchXs = xs.clone();
+        double[] batchYs = ys.clone();
+        TabulatedFunctions.sortBatch(batchXs, batchYs);
+
+        // сверяем набор со столбцом x, пока файл не изменен
+        int i = 0;
+        for (double x : batchXs) {
+            while (i < pointsCount && this.xs.get(i) <= x - 1e-10) {
+                i++;
+            }
+            if (i < pointsCount && Math.abs(this.xs.get(i) - x) < 1e-10) {
+                throw new InappropriateFunctionPointException("Точка с x=" + x + " уже существует в функции");
+            }
+        }
+        if (batchXs.length == 0) {
+            return;
+        }
+
+        ensureCapacity(pointsCount + batchXs.length);
+        i = pointsCount - 1;
+        int j = batchXs.length - 1;
+        for (int w = pointsCount + batchXs.length - 1; j >= 0; w--) {
+            if (i >= 0 && this.xs.get(i) > batchXs[j]) {
+                this.xs.put(w, this.xs.get(i));
+                this.ys.put(w, this.ys.get(i--));
+            } else {
+                this.xs.put(w, batchXs[j]);
+                this.ys.put(w, batchYs[j--]);
+            }
+        }
+        pointsCount += batchXs.length;
+        modCount++;
+        uniform = false;
+        writeHeader();
+    }
+
+    // Увеличивает емкость вдвое (но не больше MAX_CAPACITY): файл растет, столбец y переносится на новое место
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= capacity) {
+            return;
+        }
+        if (minCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Достигнута максимальная емкость файла: " + MAX_CAPACITY + " точек");
+        }
+        int newCapacity = (int) Math.min(Math.max((long) capacity * 2, minCapacity), MAX_CAPACITY);
+        DoubleBuffer oldYs = ys;
+        try {
+            map(newCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        moveColumn(oldYs, ys, pointsCount);
+        writeHeader();
+    }
+
+    // Переносит count значений столбца на новое место в файле. Если емкость упирается в MAX_CAPACITY,
+    // новый столбец начинается внутри старого (это разные отображения одних и тех же байтов),
+    // поэтому копируем кусками с конца через буфер: новое место всегда правее старого,
+    // и каждый кусок затирает только уже перенесенные значения
+    private static void moveColumn(DoubleBuffer from, DoubleBuffer to, int count) {
+        double[] chunk = new double[Math.min(count, MOVE_CHUNK)];
+        for (int end = count; end > 0; end -= chunk.length) {
+            int start = Math.max(0, end - chunk.length);
+            from.get(start, chunk, 0, end - start);
+            to.put(start, chunk, 0, end - start);
+        }
+    }
+
+    // ЗАМЕНА ВСЕХ ТОЧЕК: оба столбца записываются целиком
+
+    public void setPoints(double[] xs, double[] ys) {
+        TabulatedFunctions.checkPoints(xs, ys);
+        ensureCapacity(xs.length);
+        this.xs.put(0, xs);
+        this.ys.put(0, ys);
+        pointsCount = xs.length;
+        modCount++;
+        uniform = false;
+        writeHeader();
+    }
+
+    // ОБХОД ТОЧЕК
+
+    // Курсор читает столбцы отображения напрямую, без проверки номера на каждом шаге
+    public FunctionPointCursor cursor(int index) {
+        return new IndexPointCursor(index, pointsCount, modCount) {
+            int pointsCount() {
+                return pointsCount;
+            }
+
+            int modCount() {
+                return modCount;
+            }
+
+            double x(int i) {
+                return xs.get(i);
+            }
+
+            double y(int i) {
+                return ys.get(i);
+            }
+        };
+    }
+
+    // Строковое представление функции
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < pointsCount; i++) {
+            result.append('(').append(xs.get(i)).append(", ").append(ys.get(i)).append(')');
+            if (i < pointsCount - 1) {
+                result.append("\n");
+            }
+        }
+        return result.toString();
+    }
+}
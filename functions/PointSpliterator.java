@@ -0,0 +1,77 @@
+package functions;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Spliterator по точкам функции с номерами [origin, fence) для параллельных потоков.
+// Точки читаются курсором функции, который создается при первом обращении,
+// поэтому разделение диапазона ничего не обходит. Каждая точка выдается новой копией
+final class PointSpliterator implements Spliterator<FunctionPoint> {
+    private final TabulatedFunction function;
+    private int origin;                     // номер следующей точки
+    private final int fence;                // номер точки за концом диапазона
+    private final int characteristics;
+    private FunctionPointCursor cursor;     // курсор перед точкой origin (null - еще не создан)
+
+    PointSpliterator(TabulatedFunction function, int origin, int fence, int additionalCharacteristics) {
+        this.function = function;
+        this.origin = origin;
+        this.fence = fence;
+        this.characteristics = ORDERED | SIZED | SUBSIZED | NONNULL | additionalCharacteristics;
+    }
+
+    private FunctionPointCursor cursor() {
+        if (cursor == null) {
+            cursor = function.cursor(origin);
+        }
+        return cursor;
+    }
+
+    public boolean tryAdvance(Consumer<? super FunctionPoint> action) {
+        if (action == null) {
+            throw new NullPointerException("Действие не может быть null");
+        }
+        if (origin >= fence) {
+            return false;
+        }
+        FunctionPointCursor current = cursor();
+        current.next();
+        origin++;
+        action.accept(new FunctionPoint(current.getX(), current.getY()));
+        return true;
+    }
+
+    public void forEachRemaining(Consumer<? super FunctionPoint> action) {
+        if (action == null) {
+            throw new NullPointerException("Действие не может быть null");
+        }
+        if (origin >= fence) {
+            return;
+        }
+        FunctionPointCursor current = cursor();
+        for (; origin < fence; origin++) {
+            current.next();
+            action.accept(new FunctionPoint(current.getX(), current.getY()));
+        }
+    }
+
+    // Отдает первую половину диапазона, сам продолжает со второй
+    public Spliterator<FunctionPoint> trySplit() {
+        int mid = (origin + fence) >>> 1;
+        if (mid <= origin) {
+            return null;
+        }
+        Spliterator<FunctionPoint> prefix = new PointSpliterator(function, origin, mid, characteristics);
+        origin = mid;
+        cursor = null;  // курсор стоял перед старым началом
+        return prefix;
+    }
+
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    public int characteristics() {
+        return characteristics;
+    }
+}
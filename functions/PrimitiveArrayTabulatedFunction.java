@@ -0,0 +1,555 @@
+package functions;
+
+import java.util.function.DoubleUnaryOperator;
+
+//Класс хранит точки в двух параллельных массивах примитивов: xs - абсциссы, ys - ординаты.
+//В отличие от ArrayTabulatedFunction не создает объект FunctionPoint на каждую точку.
+//Хранение точек наследует InterpolatedTabulatedFunction: ей доступны массивы и счетчики (без private),
+//она заменяет valueOnSegment и получает вызов arraysGrown при росте массивов
+public class PrimitiveArrayTabulatedFunction implements TabulatedFunction {
+    double[] xs;                       // Абсциссы точек (упорядочены по возрастанию)
+    double[] ys;                       // Ординаты точек
+    int pointsCount;                   // Фактическое количество точек
+    int lastSegmentIndex;              // Номер отрезка, найденного при последнем вычислении значения
+    private boolean uniform;           // Точки по-прежнему стоят с равным шагом (сетка из конструктора не менялась)
+    private double uniformStep;        // Шаг равномерной сетки
+    int modCount;                      // Число добавлений и удалений точек (для курсоров)
+    private FunctionMetrics.Table metrics;  // Счетчики таблицы для метрик (null, если функция не названа)
+
+    // КОНСТРУКТОРЫ:
+    public PrimitiveArrayTabulatedFunction(double leftX, double rightX, int pointsCount) throws IllegalArgumentException {
+        // Проверка параметров
+        if (leftX >= rightX) {
+            throw new IllegalArgumentException("Левая граница не может быть больше или равна правой");
+        }
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+
+        this.pointsCount = pointsCount;
+        // Создаем массивы с запасом места для будущих добавлений
+        this.xs = new double[pointsCount + 2];
+        this.ys = new double[pointsCount + 2];
+
+        // Вычисляем шаг между точками
+        double step = (rightX - leftX) / (pointsCount - 1);
+        this.uniform = true;
+        this.uniformStep = step;
+
+        // Точки с равными интервалами, y = 0 по умолчанию
+        for (int i = 0; i < pointsCount; i++) {
+            xs[i] = leftX + i * step;
+        }
+    }
+
+    //Равномерная сетка, значения в узлах вычисляются генератором y = generator(x) (для больших таблиц параллельно)
+    public PrimitiveArrayTabulatedFunction(double leftX, double rightX, int pointsCount, DoubleUnaryOperator generator) throws IllegalArgumentException {
+        this(leftX, rightX, pointsCount);
+        fillY(generator);
+    }
+
+    //Вместо количества точек получает значения функции в виде массива
+    public PrimitiveArrayTabulatedFunction(double leftX, double rightX, double[] values) throws IllegalArgumentException {
+        if (leftX >= rightX) {
+            throw new IllegalArgumentException("Левая граница области не может быть больше или равна правой");
+        }
+        if (values.length < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+
+        this.pointsCount = values.length;
+        this.xs = new double[pointsCount + 2];
+        this.ys = new double[pointsCount + 2];
+
+        double step = (rightX - leftX) / (pointsCount - 1);
+        this.uniform = true;
+        this.uniformStep = step;
+
+        for (int i = 0; i < pointsCount; i++) {
+            xs[i] = leftX + i * step;
+        }
+        // Значения y копируем одним блоком
+        System.arraycopy(values, 0, ys, 0, pointsCount);
+    }
+
+    //Произвольная (не обязательно равномерная) сетка: абсциссы и ординаты точек в двух массивах
+    public PrimitiveArrayTabulatedFunction(double[] xs, double[] ys) throws IllegalArgumentException {
+        TabulatedFunctions.checkPoints(xs, ys);
+
+        this.pointsCount = xs.length;
+        this.xs = new double[pointsCount + 2];
+        this.ys = new double[pointsCount + 2];
+        System.arraycopy(xs, 0, this.xs, 0, pointsCount);
+        System.arraycopy(ys, 0, this.ys, 0, pointsCount);
+    }
+
+    //Произвольная сетка, заданная массивом точек
+    public PrimitiveArrayTabulatedFunction(FunctionPoint[] points) throws IllegalArgumentException {
+        this(TabulatedFunctions.xsOf(points), TabulatedFunctions.ysOf(points));
+    }
+
+    // Фабрика, создающая функции этого класса
+    public static class PrimitiveArrayTabulatedFunctionFactory implements TabulatedFunctionFactory {
+        public TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values) {
+            return new PrimitiveArrayTabulatedFunction(leftX, rightX, values);
+        }
+
+        public TabulatedFunction createTabulatedFunction(double[] xs, double[] ys) {
+            return new PrimitiveArrayTabulatedFunction(xs, ys);
+        }
+    }
+
+    // Называет функцию для метрик: ее счетчики дополнительно копятся в FunctionMetrics.table(name).
+    // null - только общие счетчики
+    public void setMetricsName(String name) {
+        metrics = name == null ? null : FunctionMetrics.table(name);
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ФУНКЦИЕЙ
+    public double getLeftDomainBorder() {
+        return xs[0];  // Первая точка - самая левая
+    }
+
+    public double getRightDomainBorder() {
+        return xs[pointsCount - 1];  // Последняя точка - самая правая
+    }
+
+    // При включенных метриках замеряется время вычисления (см. FunctionMetrics)
+    public double getFunctionValue(double x) {
+        if (!FunctionMetrics.ENABLED) {
+            return value(x);
+        }
+        long start = System.nanoTime();
+        double y = value(x);
+        FunctionMetrics.recordEvaluation(metrics, System.nanoTime() - start);
+        return y;
+    }
+
+    private double value(double x) {
+        // Проверка что x в области определения (NaN тоже не проходит)
+        if (!(x >= xs[0] && x <= xs[pointsCount - 1])) {
+            if (FunctionMetrics.ENABLED) {
+                FunctionMetrics.recordOutOfDomain(metrics);
+            }
+            return Double.NaN;  // Не число - точка вне области определения
+        }
+
+        // Ищем интервал, в который попадает x
+        return valueOnSegment(findSegmentIndex(x), x);
+    }
+
+    // Пакетное вычисление: для упорядоченных аргументов отрезки перебираются одним проходом
+    public void getFunctionValues(double[] args, int argsOffset, double[] out, int outOffset, int length) {
+        TabulatedFunctions.checkBatchRange(args, argsOffset, out, outOffset, length);
+        if (!TabulatedFunctions.isSorted(args, argsOffset, length)) {
+            // Порядок произвольный - ищем отрезок для каждого аргумента отдельно
+            for (int k = 0; k < length; k++) {
+                out[outOffset + k] = getFunctionValue(args[argsOffset + k]);
+            }
+            return;
+        }
+
+        double left = xs[0];
+        double right = xs[pointsCount - 1];
+        int last = pointsCount - 2;  // номер последнего отрезка
+        int i = -1;                  // текущий отрезок, только увеличивается
+        for (int k = 0; k < length; k++) {
+            double x = args[argsOffset + k];
+            if (x < left || x > right) {
+                out[outOffset + k] = Double.NaN;
+                continue;
+            }
+            if (i < 0) {
+                // Первый отрезок ищем поиском: часть массива при параллельном вычислении
+                // может начинаться далеко от левой границы
+                i = findSegmentIndex(x);
+            }
+            while (i < last && xs[i + 1] <= x) {
+                i++;
+            }
+            out[outOffset + k] = valueOnSegment(i, x);
+        }
+    }
+
+    // Параллельное вычисление: массив делится на части по номерам, каждая часть - пакетное вычисление.
+    // lastSegmentIndex при этом пишут несколько потоков, но любое записанное значение - допустимый
+    // номер отрезка, так что гонка влияет только на попадание в быстрый путь
+    public double[] evaluateAll(double[] args) {
+        double[] out = new double[args.length];
+        TabulatedFunctions.forEachRange(0, args.length, (from, to) -> getFunctionValues(args, from, out, from, to - from));
+        return out;
+    }
+
+    // Ординаты меняются параллельно по частям массива; абсциссы не трогаются
+    public void mapY(DoubleUnaryOperator operator) {
+        TabulatedFunctions.forEachRange(0, pointsCount, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                ys[i] = operator.applyAsDouble(ys[i]);
+            }
+        });
+    }
+
+    public void fillY(DoubleUnaryOperator function) {
+        TabulatedFunctions.forEachRange(0, pointsCount, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                ys[i] = function.applyAsDouble(xs[i]);
+            }
+        });
+    }
+
+    // Значение на отрезке [x(i), x(i+1)] с привязкой к узлам
+    double valueOnSegment(int i, double x) {
+        double x1 = xs[i];
+        double x2 = xs[i + 1];
+
+        // Проверяем совпадение с концами отрезка (используя машинный эпсилон)
+        if (Math.abs(x - x1) < 1e-10) {
+            return ys[i];
+        }
+        if (Math.abs(x - x2) < 1e-10) {
+            return ys[i + 1];
+        }
+
+        // Линейная интерполяция
+        return ys[i] + (ys[i + 1] - ys[i]) * (x - x1) / (x2 - x1);
+    }
+
+    // Возвращает номер i левого конца отрезка [x(i), x(i+1)], содержащего x.
+    // x должен лежать в области определения
+    private int findSegmentIndex(double x) {
+        int last = pointsCount - 2;  // номер последнего отрезка
+
+        // Равномерная сетка: номер отрезка вычисляется сразу, за O(1)
+        if (uniform) {
+            int i = (int) ((x - xs[0]) / uniformStep);
+            if (i > last) {
+                i = last;
+            }
+            // Поправка на ошибку округления
+            if (i > 0 && xs[i] > x) {
+                i--;
+            } else if (i < last && xs[i + 1] <= x) {
+                i++;
+            }
+            return i;
+        }
+
+        // Быстрый путь: x в том же отрезке, что и в прошлый раз, или в следующем
+        int cached = lastSegmentIndex;
+        if (cached <= last && x >= xs[cached]) {
+            if (cached == last || x < xs[cached + 1]) {
+                if (FunctionMetrics.ENABLED) {
+                    FunctionMetrics.recordSegmentCache(metrics, true);
+                }
+                return cached;
+            }
+            if (cached + 1 == last || x < xs[cached + 2]) {
+                if (FunctionMetrics.ENABLED) {
+                    FunctionMetrics.recordSegmentCache(metrics, true);
+                }
+                lastSegmentIndex = cached + 1;
+                return cached + 1;
+            }
+        }
+
+        // Бинарный поиск последней точки с x(i) <= x
+        int low = 0;
+        int high = last;
+        int steps = 0;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (xs[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+            steps++;
+        }
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordSegmentCache(metrics, false);
+            FunctionMetrics.recordSearch(metrics, steps);
+        }
+
+        lastSegmentIndex = low;
+        return low;
+    }
+
+    // Снимок получает копии занятой части массивов
+    public TabulatedFunction freeze() {
+        double[] frozenXs = new double[pointsCount];
+        double[] frozenYs = new double[pointsCount];
+        System.arraycopy(xs, 0, frozenXs, 0, pointsCount);
+        System.arraycopy(ys, 0, frozenYs, 0, pointsCount);
+        return new FrozenTabulatedFunction(frozenXs, frozenYs);
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ТОЧКАМИ:
+
+    // Количество точек в функции
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    //Возвращает новую точку с координатами из массивов
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return new FunctionPoint(xs[index], ys[index]);
+    }
+
+    //Записывает координаты точки в переданный объект вместо создания нового
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        if (reuse == null) {
+            return new FunctionPoint(xs[index], ys[index]);
+        }
+        reuse.setX(xs[index]);
+        reuse.setY(ys[index]);
+        return reuse;
+    }
+
+    // Проверка номера точки. Исключение с сообщением создается в отдельном методе:
+    // сборка строки не попадает в байткод горячих методов, и JIT охотнее их встраивает
+    private void checkIndex(int index) {
+        if (index < 0 || index >= pointsCount) {
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
+        }
+    }
+
+    private FunctionPointIndexOutOfBoundsException pointNotFound(int index) {
+        return new FunctionPointIndexOutOfBoundsException("Точка с индексом " + index + " не существует. Доступные индексы: 0 до " + (pointsCount - 1));
+    }
+
+    // Заменяет точку на новую
+    public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        checkIndex(index);
+
+        if (index > 0 && point.getX() <= xs[index - 1] + 1e-10) {
+            throw new InappropriateFunctionPointException("Новая точка нарушает порядок: x должен быть больше " + xs[index - 1]);
+        }
+        if (index < pointsCount - 1 && point.getX() >= xs[index + 1] - 1e-10) {
+            throw new InappropriateFunctionPointException("Новая точка нарушает порядок: x должен быть меньше " + xs[index + 1]);
+        }
+
+        if (point.getX() != xs[index]) {
+            uniform = false;  // Узел сдвинут - сетка больше не равномерная
+        }
+        xs[index] = point.getX();
+        ys[index] = point.getY();
+    }
+
+    // Возвращает координату x точки по индексу
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    // Устанавливает новую координату x для точки
+    public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        if (index < 0 || index >= pointsCount) {
+            throw pointNotFound(index);
+        }
+
+        if (index > 0 && x <= xs[index - 1] + 1e-10) {
+            throw new InappropriateFunctionPointException("Новый X " + x + " должен быть больше чем " + xs[index - 1] + " (X левого соседа)");
+        }
+        if (index < pointsCount - 1 && x >= xs[index + 1] - 1e-10) {
+            throw new InappropriateFunctionPointException("Новый X " + x + " должен быть меньше чем " + xs[index + 1] + " (X правого соседа)");
+        }
+
+        if (x != xs[index]) {
+            uniform = false;  // Узел сдвинут - сетка больше не равномерная
+        }
+        xs[index] = x;
+    }
+
+    // Возвращает координату y точки по индексу
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    // Устанавливает новую координату y для точки
+    public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        ys[index] = y;
+    }
+
+    // МЕТОДЫ ДЛЯ ИЗМЕНЕНИЯ КОЛИЧЕСТВА ТОЧЕК:
+
+    // Удаляет точку по индексу
+    public void deletePoint(int index) throws FunctionPointIndexOutOfBoundsException, IllegalStateException {
+        // Нельзя удалять если точек меньше 3 или индекс неверный
+        if (pointsCount <= 2) {
+            throw new IllegalStateException("Нельзя удалять точки: минимальное количество точек - 3");
+        }
+
+        checkIndex(index);
+
+        // Удаление крайней точки сохраняет равный шаг, внутренней - нарушает
+        if (index != 0 && index != pointsCount - 1) {
+            uniform = false;
+        }
+
+        // Сдвигаем хвосты обоих массивов влево одним блоком
+        int tail = pointsCount - index - 1;
+        System.arraycopy(xs, index + 1, xs, index, tail);
+        System.arraycopy(ys, index + 1, ys, index, tail);
+        pointsCount--;
+        modCount++;
+    }
+
+    // Добавляет новую точку в функцию (с сохранением упорядоченности)
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        // Проверяем что точка не пустая
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        double x = point.getX();
+
+        // Бинарный поиск первой точки с x(i) >= x - позиции для вставки
+        int low = 0;
+        int high = pointsCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int insertIndex = low;
+
+        // Проверяем обоих соседей на совпадение (используя машинный эпсилон)
+        if ((insertIndex < pointsCount && Math.abs(xs[insertIndex] - x) < 1e-10)
+                || (insertIndex > 0 && Math.abs(xs[insertIndex - 1] - x) < 1e-10)) {
+            throw new InappropriateFunctionPointException("Точка с x=" + x + " уже существует в функции");
+        }
+
+        uniform = false;  // Новая точка нарушает равный шаг сетки
+
+        // Проверяем нужно ли увеличивать массивы
+        ensureCapacity(pointsCount + 1);
+
+        // Сдвигаем элементы чтобы освободить место для новой точки
+        int tail = pointsCount - insertIndex;
+        System.arraycopy(xs, insertIndex, xs, insertIndex + 1, tail);
+        System.arraycopy(ys, insertIndex, ys, insertIndex + 1, tail);
+
+        xs[insertIndex] = x;
+        ys[insertIndex] = point.getY();
+        pointsCount++;
+        modCount++;
+    }
+
+    // Добавляет набор точек за O(n + k log k): набор сортируется и сверяется с точками функции,
+    // затем сливается с ними прямо в массивах, с конца - каждая точка сдвигается один раз
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        double[] batchXs = xs.clone();
+        double[] batchYs = ys.clone();
+        TabulatedFunctions.sortBatch(batchXs, batchYs);
+        TabulatedFunctions.checkBatchConflicts(this.xs, pointsCount, batchXs);
+        if (batchXs.length == 0) {
+            return;
+        }
+
+        uniform = false;  // Новые точки нарушают равный шаг сетки
+        ensureCapacity(pointsCount + batchXs.length);
+        TabulatedFunctions.mergeBatch(this.xs, this.ys, pointsCount, batchXs, batchYs);
+        pointsCount += batchXs.length;
+        modCount++;
+    }
+
+    // Увеличивает емкость массивов хотя бы в 2 раза - амортизированно O(1) на добавленную точку
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= xs.length) {
+            return;
+        }
+        int capacity = Math.max(xs.length * 2, minCapacity);
+        double[] newXs = new double[capacity];
+        double[] newYs = new double[capacity];
+        System.arraycopy(xs, 0, newXs, 0, pointsCount);
+        System.arraycopy(ys, 0, newYs, 0, pointsCount);
+        xs = newXs;
+        ys = newYs;
+        arraysGrown(capacity);
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordArrayGrowth(metrics);
+        }
+    }
+
+    // Вызывается после увеличения емкости xs и ys (наследник увеличивает свои массивы узлов)
+    void arraysGrown(int capacity) {
+    }
+
+    // ЗАМЕНА ВСЕХ ТОЧЕК
+
+    public void setPoints(double[] xs, double[] ys) {
+        TabulatedFunctions.checkPoints(xs, ys);
+        ensureCapacity(xs.length);
+        System.arraycopy(xs, 0, this.xs, 0, xs.length);
+        System.arraycopy(ys, 0, this.ys, 0, ys.length);
+        pointsCount = xs.length;
+        uniform = false;
+        lastSegmentIndex = 0;
+        modCount++;
+    }
+
+    // УПРОЩЕНИЕ
+
+    // Удаляет лишние узлы (см. TabulatedFunction.simplify) одним проходом: оставленные
+    // точки переписываются к началу массивов, каждая сдвигается не больше одного раза
+    public void simplify(double maxError) {
+        boolean[] keep = TabulatedFunctions.simplificationMask(xs, ys, pointsCount, maxError);
+
+        int count = 0;
+        for (int i = 0; i < pointsCount; i++) {
+            if (keep[i]) {
+                xs[count] = xs[i];
+                ys[count] = ys[i];
+                count++;
+            }
+        }
+        if (count == pointsCount) {
+            return;
+        }
+        pointsCount = count;
+        uniform = false;  // удалены внутренние узлы
+        lastSegmentIndex = 0;
+        modCount++;
+    }
+
+    // ОБХОД ТОЧЕК
+
+    // Курсор читает массивы напрямую, без проверки номера на каждом шаге
+    public FunctionPointCursor cursor(int index) {
+        return new IndexPointCursor(index, pointsCount, modCount) {
+            int pointsCount() {
+                return pointsCount;
+            }
+
+            int modCount() {
+                return modCount;
+            }
+
+            double x(int i) {
+                return xs[i];
+            }
+
+            double y(int i) {
+                return ys[i];
+            }
+        };
+    }
+
+    // Строковое представление функции (в том же формате, что и у ArrayTabulatedFunction)
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < pointsCount; i++) {
+            result.append('(').append(xs[i]).append(", ").append(ys[i]).append(')');
+            if (i < pointsCount - 1) {
+                result.append("\n");
+            }
+        }
+        return result.toString();
+    }
+}
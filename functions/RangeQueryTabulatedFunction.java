@@ -0,0 +1,357 @@
+package functions;
+
+import java.util.Spliterator;
+import java.util.function.DoubleUnaryOperator;
+
+//Декоратор с быстрыми запросами к кусочно-линейной функции: минимум и максимум на [a, b],
+//все корни уравнения f(x) = c и производная в точке.
+//Декоратор держит копию абсцисс и ординат в массивах (поиск не зависит от того, как функция
+//хранит точки, - для связного списка не нужен обход по номерам) и дерево отрезков
+//с минимумом и максимумом ординат узлов. Минимум и максимум - O(log n), корни - O(log n) на каждый
+//найденный отрезок пересечения. setPointY, setPointX и setPoint обновляют индекс за O(log n);
+//добавление и удаление точек сдвигают номера узлов, поэтому после них индекс строится заново
+//за O(n) - лениво, при следующем запросе.
+//Функцию нужно менять только через декоратор, иначе индекс устареет. Класс не потокобезопасен
+public class RangeQueryTabulatedFunction implements TabulatedFunction {
+    private final TabulatedFunction function;  // Оборачиваемая функция
+    private double[] xs = new double[0];       // Копия абсцисс точек
+    private double[] ys = new double[0];       // Копия ординат точек
+    private int pointsCount;                   // Количество точек в копии
+    private int leaves;                        // Число листьев дерева - степень двойки, не меньше pointsCount
+    private double[] minTree = new double[0];  // Дерево отрезков: вершина v - минимум и максимум
+    private double[] maxTree = new double[0];  // ординат своих листьев; листья - вершины leaves + i
+    private boolean valid;                     // Индекс соответствует текущим точкам
+
+    public RangeQueryTabulatedFunction(TabulatedFunction function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Функция не может быть null");
+        }
+        this.function = function;
+    }
+
+    // ЗАПРОСЫ
+
+    // Максимум функции на [a, b] (NaN, если отрезок выходит из области определения)
+    public double max(double a, double b) {
+        return extremum(a, b, true);
+    }
+
+    // Минимум функции на [a, b] (NaN, если отрезок выходит из области определения)
+    public double min(double a, double b) {
+        return extremum(a, b, false);
+    }
+
+    // Экстремум линейной между узлами функции достигается в концах [a, b] или в узлах внутри него
+    private double extremum(double a, double b, boolean max) {
+        if (a > b) {
+            throw new IllegalArgumentException("Левый конец отрезка " + a + " больше правого " + b);
+        }
+        ensureIndex();
+        if (!(a >= xs[0] && b <= xs[pointsCount - 1])) {
+            return Double.NaN;
+        }
+        double fa = valueAt(a);
+        double fb = valueAt(b);
+        double result = max ? Math.max(fa, fb) : Math.min(fa, fb);
+
+        // узлы с a < x(i) < b
+        int first = TabulatedFunctions.lowerBound(xs, 0, pointsCount, a);
+        if (first < pointsCount && xs[first] == a) {
+            first++;
+        }
+        int last = TabulatedFunctions.lowerBound(xs, first, pointsCount, b) - 1;
+        if (first <= last) {
+            double inside = max ? rangeMax(first, last) : rangeMin(first, last);
+            result = max ? Math.max(result, inside) : Math.min(result, inside);
+        }
+        return result;
+    }
+
+    // Все x, в которых f(x) = c, по возрастанию. Внутри отрезка корень находится линейной
+    // интерполяцией; на участке, где функция постоянно равна c, возвращаются его концы
+    public double[] roots(double c) {
+        ensureIndex();
+        RootList roots = new RootList();
+        if (pointsCount > 1 && !Double.isNaN(c)) {
+            findRoots(1, 0, leaves - 1, c, roots);
+        }
+        if (ys[pointsCount - 1] == c) {
+            roots.add(xs[pointsCount - 1]);
+        }
+        return roots.toArray();
+    }
+
+    // Обходит пары соседних узлов (j, j+1), j из [l, r), в поддереве v. В поддереве есть пара,
+    // пересекающая уровень c, тогда и только тогда, когда его минимум <= c <= максимума
+    // (между узлом не выше c и узлом не ниже c найдется такая пара соседей), поэтому
+    // посещаются только вершины над найденными корнями и их соседи
+    private void findRoots(int v, int l, int r, double c, RootList roots) {
+        if (l >= r || minTree[v] > c || maxTree[v] < c) {
+            return;
+        }
+        int mid = (l + r) >>> 1;
+        findRoots(2 * v, l, mid, c, roots);
+        checkPair(mid, c, roots);
+        findRoots(2 * v + 1, mid + 1, r, c, roots);
+    }
+
+    // Корень на отрезке [x(j), x(j+1)]; узел j записывается как корень левым концом своей пары
+    private void checkPair(int j, double c, RootList roots) {
+        if (j + 1 >= pointsCount) {
+            return;
+        }
+        double y1 = ys[j] - c;
+        double y2 = ys[j + 1] - c;
+        if (y1 == 0) {
+            roots.add(xs[j]);
+        } else if ((y1 < 0 && y2 > 0) || (y1 > 0 && y2 < 0)) {
+            roots.add(xs[j] + (xs[j + 1] - xs[j]) * y1 / (y1 - y2));
+        }
+    }
+
+    // Производная в x - наклон отрезка, содержащего x. В узле берется наклон отрезка справа,
+    // в правой границе - слева. NaN вне области определения
+    public double derivative(double x) {
+        ensureIndex();
+        if (!(x >= xs[0] && x <= xs[pointsCount - 1])) {
+            return Double.NaN;
+        }
+        int i = segmentIndex(x);
+        return (ys[i + 1] - ys[i]) / (xs[i + 1] - xs[i]);
+    }
+
+    // Номер отрезка [x(i), x(i+1)], содержащего x из области определения
+    private int segmentIndex(double x) {
+        int i = TabulatedFunctions.lowerBound(xs, 0, pointsCount, x);
+        if (i == pointsCount || xs[i] > x) {
+            i--;  // x лежит строго между узлами i-1 и i
+        }
+        return Math.min(i, pointsCount - 2);
+    }
+
+    // Значение по копии точек (с привязкой к узлам, как у табулированных функций)
+    private double valueAt(double x) {
+        int i = segmentIndex(x);
+        if (Math.abs(x - xs[i]) < 1e-10) {
+            return ys[i];
+        }
+        if (Math.abs(x - xs[i + 1]) < 1e-10) {
+            return ys[i + 1];
+        }
+        return ys[i] + (ys[i + 1] - ys[i]) * (x - xs[i]) / (xs[i + 1] - xs[i]);
+    }
+
+    // ДЕРЕВО ОТРЕЗКОВ
+
+    // Копирует точки курсором и строит дерево снизу вверх за O(n)
+    private void ensureIndex() {
+        if (valid) {
+            return;
+        }
+        pointsCount = function.getPointsCount();
+        if (xs.length < pointsCount) {
+            xs = new double[pointsCount];
+            ys = new double[pointsCount];
+        }
+        FunctionPointCursor cursor = function.cursor();
+        for (int i = 0; i < pointsCount; i++) {
+            cursor.next();
+            xs[i] = cursor.getX();
+            ys[i] = cursor.getY();
+        }
+
+        leaves = Integer.highestOneBit(Math.max(pointsCount - 1, 1)) << 1;
+        if (minTree.length < 2 * leaves) {
+            minTree = new double[2 * leaves];
+            maxTree = new double[2 * leaves];
+        }
+        for (int i = 0; i < leaves; i++) {
+            // лишние листья не мешают ни минимуму, ни максимуму
+            minTree[leaves + i] = i < pointsCount ? ys[i] : Double.POSITIVE_INFINITY;
+            maxTree[leaves + i] = i < pointsCount ? ys[i] : Double.NEGATIVE_INFINITY;
+        }
+        for (int v = leaves - 1; v > 0; v--) {
+            minTree[v] = Math.min(minTree[2 * v], minTree[2 * v + 1]);
+            maxTree[v] = Math.max(maxTree[2 * v], maxTree[2 * v + 1]);
+        }
+        valid = true;
+    }
+
+    // Новое значение листа i и пересчет его предков
+    private void updateLeaf(int i, double y) {
+        int v = leaves + i;
+        minTree[v] = y;
+        maxTree[v] = y;
+        for (v >>= 1; v > 0; v >>= 1) {
+            minTree[v] = Math.min(minTree[2 * v], minTree[2 * v + 1]);
+            maxTree[v] = Math.max(maxTree[2 * v], maxTree[2 * v + 1]);
+        }
+    }
+
+    // Минимум ординат узлов с номерами [first, last] - подъем от двух листьев к корню
+    private double rangeMin(int first, int last) {
+        double result = Double.POSITIVE_INFINITY;
+        for (int l = leaves + first, r = leaves + last + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.min(result, minTree[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.min(result, minTree[--r]);
+            }
+        }
+        return result;
+    }
+
+    private double rangeMax(int first, int last) {
+        double result = Double.NEGATIVE_INFINITY;
+        for (int l = leaves + first, r = leaves + last + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.max(result, maxTree[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.max(result, maxTree[--r]);
+            }
+        }
+        return result;
+    }
+
+    // Растущий массив найденных корней
+    private static final class RootList {
+        private double[] values = new double[8];
+        private int count;
+
+        void add(double x) {
+            if (count == values.length) {
+                double[] grown = new double[count * 2];
+                System.arraycopy(values, 0, grown, 0, count);
+                values = grown;
+            }
+            values[count++] = x;
+        }
+
+        double[] toArray() {
+            double[] result = new double[count];
+            System.arraycopy(values, 0, result, 0, count);
+            return result;
+        }
+    }
+
+    // ИЗМЕНЕНИЕ ТОЧЕК
+
+    public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        function.setPoint(index, point);
+        if (valid) {
+            xs[index] = point.getX();
+            ys[index] = point.getY();
+            updateLeaf(index, point.getY());
+        }
+    }
+
+    public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        function.setPointX(index, x);
+        if (valid) {
+            xs[index] = x;
+        }
+    }
+
+    public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        function.setPointY(index, y);
+        if (valid) {
+            ys[index] = y;
+            updateLeaf(index, y);
+        }
+    }
+
+    // Изменения количества точек сдвигают номера узлов - индекс строится заново при следующем запросе
+    public void deletePoint(int index) throws IllegalStateException, FunctionPointIndexOutOfBoundsException {
+        function.deletePoint(index);
+        valid = false;
+    }
+
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        function.addPoint(point);
+        valid = false;
+    }
+
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        function.addPoints(xs, ys);
+        valid = false;
+    }
+
+    public void setPoints(double[] xs, double[] ys) {
+        function.setPoints(xs, ys);
+        valid = false;
+    }
+
+    public void simplify(double maxError) {
+        function.simplify(maxError);
+        valid = false;
+    }
+
+    public void mapY(DoubleUnaryOperator operator) {
+        function.mapY(operator);
+        valid = false;
+    }
+
+    public void fillY(DoubleUnaryOperator function) {
+        this.function.fillY(function);
+        valid = false;
+    }
+
+    // ОСТАЛЬНЫЕ МЕТОДЫ - без изменений передаются функции
+    public double getFunctionValue(double x) {
+        return function.getFunctionValue(x);
+    }
+
+    public void getFunctionValues(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        function.getFunctionValues(xs, xsOffset, out, outOffset, length);
+    }
+
+    public double[] evaluateAll(double[] xs) {
+        return function.evaluateAll(xs);
+    }
+
+    public double getLeftDomainBorder() {
+        return function.getLeftDomainBorder();
+    }
+
+    public double getRightDomainBorder() {
+        return function.getRightDomainBorder();
+    }
+
+    public int getPointsCount() {
+        return function.getPointsCount();
+    }
+
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPoint(index);
+    }
+
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPoint(index, reuse);
+    }
+
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPointX(index);
+    }
+
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        return function.getPointY(index);
+    }
+
+    public FunctionPointCursor cursor(int index) {
+        return function.cursor(index);
+    }
+
+    public Spliterator<FunctionPoint> spliterator() {
+        return function.spliterator();
+    }
+
+    public TabulatedFunction freeze() {
+        return function.freeze();
+    }
+
+    public String toString() {
+        return function.toString();
+    }
+}
@@ -0,0 +1,336 @@
+package functions;
+
+//Табулированная функция для потоковых данных (например, показаний датчика по времени),
+//в которую точки добавляются только в конец: x каждой новой точки больше x последней.
+//Точки лежат в кольцевом буфере из двух массивов примитивов: добавление в конец и вытеснение
+//самых старых точек - O(1), значение функции - бинарный поиск, O(log n).
+//Хранятся не больше maxPoints последних точек, и разность x последней и первой точки
+//не больше maxSpan (при вытеснении по интервалу остаются хотя бы две точки).
+//Пока точек меньше двух, функция не определена ни в одной точке (значения и границы - NaN)
+public class StreamingTabulatedFunction implements TabulatedFunction {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] xs;               // Абсциссы: логическая точка i лежит в ячейке (head + i) & mask
+    private double[] ys;               // Ординаты в тех же ячейках
+    private int mask;                  // Емкость буфера минус 1 (емкость - степень двойки)
+    private int head;                  // Ячейка первой (самой старой) точки
+    private int pointsCount;           // Фактическое количество точек
+    private final int maxPoints;       // Сколько последних точек хранится
+    private final double maxSpan;      // Наибольшая разность x последней и первой точки
+    private long evictedCount;         // Сколько точек вытеснено за все время
+    private int modCount;              // Число добавлений и удалений точек (для курсоров)
+
+    // КОНСТРУКТОРЫ:
+
+    // Хранит не больше maxPoints последних точек; буфер выделяется сразу и больше не растет
+    public StreamingTabulatedFunction(int maxPoints) throws IllegalArgumentException {
+        this(maxPoints, Double.POSITIVE_INFINITY);
+    }
+
+    // Хранит последние точки, пока их не больше maxPoints и x укладываются в интервал maxSpan.
+    // Для хранения только по интервалу maxPoints = Integer.MAX_VALUE - тогда буфер растет по мере надобности
+    public StreamingTabulatedFunction(int maxPoints, double maxSpan) throws IllegalArgumentException {
+        if (maxPoints < 2) {
+            throw new IllegalArgumentException("Количество хранимых точек не может быть меньше двух");
+        }
+        if (!(maxSpan > 0)) {
+            throw new IllegalArgumentException("Интервал хранения должен быть положительным: " + maxSpan);
+        }
+        this.maxPoints = maxPoints;
+        this.maxSpan = maxSpan;
+
+        int capacity = maxPoints <= 1 << 20 ? Integer.highestOneBit(maxPoints - 1) << 1 : INITIAL_CAPACITY;
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    public double getMaxSpan() {
+        return maxSpan;
+    }
+
+    // Сколько точек вытеснено окном хранения
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    // ДОБАВЛЕНИЕ В КОНЕЦ
+
+    // Добавляет точку после последней за O(1) и вытесняет точки, вышедшие из окна хранения.
+    // x должен быть больше x последней точки (с точностью 1e-10)
+    public void append(double x, double y) throws InappropriateFunctionPointException {
+        if (Double.isNaN(x)) {
+            throw new InappropriateFunctionPointException("Абсцисса точки не может быть NaN");
+        }
+        if (pointsCount > 0) {
+            double lastX = xAt(pointsCount - 1);
+            if (x <= lastX + 1e-10) {
+                throw new InappropriateFunctionPointException("Точка с x=" + x
+                        + " добавляется не в конец: x должен быть больше " + lastX + " (X последней точки)");
+            }
+        }
+        if (pointsCount == maxPoints) {
+            evictOldest();
+        } else if (pointsCount == xs.length) {
+            grow();
+        }
+        int slot = (head + pointsCount) & mask;
+        xs[slot] = x;
+        ys[slot] = y;
+        pointsCount++;
+        modCount++;
+
+        // вытеснение по интервалу: каждая точка вытесняется один раз - O(1) амортизированно
+        while (pointsCount > 2 && x - xs[head] > maxSpan) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        head = (head + 1) & mask;
+        pointsCount--;
+        evictedCount++;
+        modCount++;
+    }
+
+    // Удваивает буфер, раскладывая точки с начала нового массива
+    private void grow() {
+        int capacity = xs.length * 2;
+        double[] newXs = new double[capacity];
+        double[] newYs = new double[capacity];
+        int firstPart = Math.min(pointsCount, xs.length - head);
+        System.arraycopy(xs, head, newXs, 0, firstPart);
+        System.arraycopy(ys, head, newYs, 0, firstPart);
+        System.arraycopy(xs, 0, newXs, firstPart, pointsCount - firstPart);
+        System.arraycopy(ys, 0, newYs, firstPart, pointsCount - firstPart);
+        xs = newXs;
+        ys = newYs;
+        mask = capacity - 1;
+        head = 0;
+        if (FunctionMetrics.ENABLED) {
+            FunctionMetrics.recordArrayGrowth(null);
+        }
+    }
+
+    // Точки можно добавлять только в конец; точка внутри или перед таблицей - InappropriateFunctionPointException
+    public void addPoint(FunctionPoint point) throws InappropriateFunctionPointException {
+        if (point == null) {
+            throw new IllegalArgumentException("Точка не может быть null");
+        }
+        append(point.getX(), point.getY());
+    }
+
+    // Набор упорядочивается и проверяется целиком: если хоть одна точка не после последней,
+    // функция не меняется. Окно хранения применяется как при добавлении по одной
+    public void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        double[] batchXs = xs.clone();
+        double[] batchYs = ys.clone();
+        TabulatedFunctions.sortBatch(batchXs, batchYs);
+        if (batchXs.length == 0) {
+            return;
+        }
+        if (pointsCount > 0) {
+            double lastX = xAt(pointsCount - 1);
+            if (batchXs[0] <= lastX + 1e-10) {
+                throw new InappropriateFunctionPointException("Точка с x=" + batchXs[0]
+                        + " добавляется не в конец: x должен быть больше " + lastX + " (X последней точки)");
+            }
+        }
+        for (int k = 0; k < batchXs.length; k++) {
+            append(batchXs[k], batchYs[k]);
+        }
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ФУНКЦИЕЙ
+
+    private double xAt(int index) {
+        return xs[(head + index) & mask];
+    }
+
+    private double yAt(int index) {
+        return ys[(head + index) & mask];
+    }
+
+    public double getLeftDomainBorder() {
+        return pointsCount < 2 ? Double.NaN : xs[head];
+    }
+
+    public double getRightDomainBorder() {
+        return pointsCount < 2 ? Double.NaN : xAt(pointsCount - 1);
+    }
+
+    public double getFunctionValue(double x) {
+        if (pointsCount < 2 || x < xs[head] || x > xAt(pointsCount - 1)) {
+            return Double.NaN;
+        }
+
+        // Бинарный поиск последней точки с x(i) <= x
+        int low = 0;
+        int high = pointsCount - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (xAt(mid) <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        double x1 = xAt(low);
+        double x2 = xAt(low + 1);
+        double y1 = yAt(low);
+        double y2 = yAt(low + 1);
+        // Проверяем совпадение с концами отрезка (используя машинный эпсилон)
+        if (Math.abs(x - x1) < 1e-10) {
+            return y1;
+        }
+        if (Math.abs(x - x2) < 1e-10) {
+            return y2;
+        }
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+    }
+
+    // МЕТОДЫ ДЛЯ РАБОТЫ С ТОЧКАМИ:
+
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    public FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return new FunctionPoint(xAt(index), yAt(index));
+    }
+
+    public FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        if (reuse == null) {
+            return new FunctionPoint(xAt(index), yAt(index));
+        }
+        reuse.setX(xAt(index));
+        reuse.setY(yAt(index));
+        return reuse;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= pointsCount) {
+            throw FunctionPointIndexOutOfBoundsException.forIndex(index);
+        }
+    }
+
+    public void setPoint(int index, FunctionPoint point) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        checkIndex(index);
+        checkOrder(index, point.getX());
+        xs[(head + index) & mask] = point.getX();
+        ys[(head + index) & mask] = point.getY();
+    }
+
+    public double getPointX(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return xAt(index);
+    }
+
+    public void setPointX(int index, double x) throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException {
+        checkIndex(index);
+        checkOrder(index, x);
+        xs[(head + index) & mask] = x;
+    }
+
+    // Проверяет, что x точки index остается между соседями
+    private void checkOrder(int index, double x) throws InappropriateFunctionPointException {
+        if (index > 0 && x <= xAt(index - 1) + 1e-10) {
+            throw new InappropriateFunctionPointException("Новый X " + x + " должен быть больше чем " + xAt(index - 1) + " (X левого соседа)");
+        }
+        if (index < pointsCount - 1 && x >= xAt(index + 1) - 1e-10) {
+            throw new InappropriateFunctionPointException("Новый X " + x + " должен быть меньше чем " + xAt(index + 1) + " (X правого соседа)");
+        }
+    }
+
+    public double getPointY(int index) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        return yAt(index);
+    }
+
+    public void setPointY(int index, double y) throws FunctionPointIndexOutOfBoundsException {
+        checkIndex(index);
+        ys[(head + index) & mask] = y;
+    }
+
+    // Удаление первой точки - O(1), остальных - сдвиг более короткой из двух частей буфера
+    public void deletePoint(int index) throws IllegalStateException, FunctionPointIndexOutOfBoundsException {
+        if (pointsCount <= 2) {
+            throw new IllegalStateException("Нельзя удалять точки: минимальное количество точек - 3");
+        }
+        checkIndex(index);
+
+        if (index < pointsCount / 2) {
+            // точки перед index сдвигаются на одну ячейку вперед
+            for (int i = index; i > 0; i--) {
+                xs[(head + i) & mask] = xAt(i - 1);
+                ys[(head + i) & mask] = yAt(i - 1);
+            }
+            head = (head + 1) & mask;
+        } else {
+            // точки после index сдвигаются на одну ячейку назад
+            for (int i = index; i < pointsCount - 1; i++) {
+                xs[(head + i) & mask] = xAt(i + 1);
+                ys[(head + i) & mask] = yAt(i + 1);
+            }
+        }
+        pointsCount--;
+        modCount++;
+    }
+
+    // Замена всех точек: буфер очищается, и точки добавляются в конец по одной,
+    // так что окно хранения применяется как при обычном добавлении
+    public void setPoints(double[] xs, double[] ys) {
+        TabulatedFunctions.checkPoints(xs, ys);
+        head = 0;
+        pointsCount = 0;
+        modCount++;
+        try {
+            for (int i = 0; i < xs.length; i++) {
+                append(xs[i], ys[i]);
+            }
+        } catch (InappropriateFunctionPointException e) {
+            // абсциссы проверены заранее
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ОБХОД ТОЧЕК
+
+    public FunctionPointCursor cursor(int index) {
+        return new IndexPointCursor(index, pointsCount, modCount) {
+            int pointsCount() {
+                return pointsCount;
+            }
+
+            int modCount() {
+                return modCount;
+            }
+
+            double x(int i) {
+                return xAt(i);
+            }
+
+            double y(int i) {
+                return yAt(i);
+            }
+        };
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < pointsCount; i++) {
+            result.append('(').append(xAt(i)).append(", ").append(yAt(i)).append(')');
+            if (i < pointsCount - 1) {
+                result.append("\n");
+            }
+        }
+        return result.toString();
+    }
+}
@@ -1,10 +1,24 @@
 package functions;
 
-public interface TabulatedFunction {
+import java.util.Spliterator;
+import java.util.function.DoubleUnaryOperator;
+
+public interface TabulatedFunction extends Function {
     int getPointsCount();
     
     FunctionPoint getPoint(int index) throws FunctionPointIndexOutOfBoundsException;
-    
+
+    // Записывает координаты точки в reuse и возвращает его - для циклов по всем точкам без создания объектов.
+    // Если reuse равен null, возвращается новая точка
+    default FunctionPoint getPoint(int index, FunctionPoint reuse) throws FunctionPointIndexOutOfBoundsException {
+        if (reuse == null) {
+            return getPoint(index);
+        }
+        reuse.setX(getPointX(index));
+        reuse.setY(getPointY(index));
+        return reuse;
+    }
+
     void setPoint(int index, FunctionPoint point) 
         throws FunctionPointIndexOutOfBoundsException, InappropriateFunctionPointException;
     
@@ -20,12 +34,143 @@ public interface TabulatedFunction {
     void deletePoint(int index) throws IllegalStateException, FunctionPointIndexOutOfBoundsException;
     
     void addPoint(FunctionPoint point) throws InappropriateFunctionPointException;
-    
-    double getLeftDomainBorder();
-    
-    double getRightDomainBorder();
-    
-    double getFunctionValue(double x);
+
+    // Добавляет набор точек в любом порядке. Набор проверяется целиком до изменения функции:
+    // если x точки совпадает (с точностью 1e-10) с существующей точкой или с другой точкой набора,
+    // выбрасывается исключение и функция остается прежней
+    default void addPoints(FunctionPoint[] points) throws InappropriateFunctionPointException {
+        addPoints(TabulatedFunctions.xsOf(points), TabulatedFunctions.ysOf(points));
+    }
+
+    // То же для абсцисс и ординат в двух массивах (массивы не меняются).
+    // Реализации переопределяют метод, чтобы слить набор с точками функции за один проход
+    default void addPoints(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        double[] batchXs = xs.clone();
+        double[] batchYs = ys.clone();
+        TabulatedFunctions.sortBatch(batchXs, batchYs);
+
+        // сверяем набор с точками функции, пока ничего не изменено
+        int i = 0;
+        int count = getPointsCount();
+        for (double x : batchXs) {
+            while (i < count && getPointX(i) <= x - 1e-10) {
+                i++;
+            }
+            if (i < count && Math.abs(getPointX(i) - x) < 1e-10) {
+                throw new InappropriateFunctionPointException("Точка с x=" + x + " уже существует в функции");
+            }
+        }
+        for (int k = 0; k < batchXs.length; k++) {
+            addPoint(new FunctionPoint(batchXs[k], batchYs[k]));
+        }
+    }
+
+    // Открывает пакет изменений: изменения точек накапливаются и применяются все сразу
+    // одной проверкой и одной заменой точек (см. FunctionEditBatch)
+    default FunctionEditBatch edit() {
+        return new FunctionEditBatch(this);
+    }
+
+    // Заменяет все точки функции набором xs, ys (не меньше двух точек, абсциссы строго возрастают).
+    // Реализации заменяют хранилище одним проходом. Общая реализация удаляет точки до двух,
+    // ставит оставшиеся на место двух первых точек набора и добавляет остальные по возрастанию x
+    default void setPoints(double[] xs, double[] ys) {
+        TabulatedFunctions.checkPoints(xs, ys);
+        while (getPointsCount() > 2) {
+            deletePoint(getPointsCount() - 1);
+        }
+        try {
+            // порядок перестановки выбирается так, чтобы точки ни на каком шаге не менялись местами
+            if (xs[1] > getPointX(0) + 1e-10) {
+                setPoint(1, new FunctionPoint(xs[1], ys[1]));
+                setPoint(0, new FunctionPoint(xs[0], ys[0]));
+            } else {
+                setPoint(0, new FunctionPoint(xs[0], ys[0]));
+                setPoint(1, new FunctionPoint(xs[1], ys[1]));
+            }
+            for (int i = 2; i < xs.length; i++) {
+                addPoint(new FunctionPoint(xs[i], ys[i]));
+            }
+        } catch (InappropriateFunctionPointException e) {
+            // набор упорядочен, поэтому ни одна операция не может нарушить порядок
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Массив значений функции для всех xs (NaN вне области определения).
+    // Реализации считают большие массивы параллельно, см. TabulatedFunctions.setParallelThreshold
+    default double[] evaluateAll(double[] xs) {
+        double[] out = new double[xs.length];
+        getFunctionValues(xs, out);
+        return out;
+    }
+
+    // Заменяет ординату каждой точки: y(i) = operator(y(i))
+    default void mapY(DoubleUnaryOperator operator) {
+        for (int i = 0; i < getPointsCount(); i++) {
+            setPointY(i, operator.applyAsDouble(getPointY(i)));
+        }
+    }
+
+    // Заполняет ординаты значениями функции в узлах: y(i) = function(x(i))
+    default void fillY(DoubleUnaryOperator function) {
+        for (int i = 0; i < getPointsCount(); i++) {
+            setPointY(i, function.applyAsDouble(getPointX(i)));
+        }
+    }
+
+    // Удаляет узлы, без которых линейная интерполяция отличается от текущей не больше чем на maxError
+    // (см. TabulatedFunctions.simplificationMask). Реализации сжимают хранилище одним проходом,
+    // общая реализация удаляет лишние узлы по одному, начиная с конца
+    default void simplify(double maxError) {
+        boolean[] keep = TabulatedFunctions.simplificationMask(TabulatedFunctions.getXs(this),
+                TabulatedFunctions.getYs(this), getPointsCount(), maxError);
+        for (int i = keep.length - 2; i > 0; i--) {
+            if (!keep[i]) {
+                deletePoint(i);
+            }
+        }
+    }
+
+    // Курсор перед первой точкой для обхода без создания объектов
+    default FunctionPointCursor cursor() {
+        return cursor(0);
+    }
+
+    // Курсор перед точкой index (index = getPointsCount() - после последней, для обхода назад).
+    // Общая реализация читает точки по номерам и замечает изменения по количеству точек;
+    // реализации переопределяют метод, чтобы идти по своему хранилищу напрямую
+    default FunctionPointCursor cursor(int index) {
+        int pointsCount = getPointsCount();
+        return new IndexPointCursor(index, pointsCount, pointsCount) {
+            int pointsCount() {
+                return getPointsCount();
+            }
+
+            int modCount() {
+                return getPointsCount();
+            }
+
+            double x(int i) {
+                return getPointX(i);
+            }
+
+            double y(int i) {
+                return getPointY(i);
+            }
+        };
+    }
+
+    // Spliterator по копиям точек, например для StreamSupport.stream(function.spliterator(), true)
+    default Spliterator<FunctionPoint> spliterator() {
+        return new PointSpliterator(this, 0, getPointsCount(), 0);
+    }
+
+    // Возвращает неизменяемый снимок функции с заранее вычисленными наклонами отрезков.
+    // Снимок можно читать из нескольких потоков без синхронизации
+    default TabulatedFunction freeze() {
+        return new FrozenTabulatedFunction(this);
+    }
     
     String toString();
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package functions;
+
+// Создает табулированные функции конкретного класса.
+// Позволяет методам TabulatedFunctions не зависеть от выбранной реализации
+public interface TabulatedFunctionFactory {
+    // Равномерная сетка на [leftX, rightX] со значениями values
+    TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values);
+
+    // Произвольная сетка: абсциссы xs (строго возрастают) и ординаты ys
+    TabulatedFunction createTabulatedFunction(double[] xs, double[] ys);
+}
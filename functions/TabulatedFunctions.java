@@ -0,0 +1,1010 @@
+package functions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+// Вспомогательные методы для работы с табулированными функциями
+public final class TabulatedFunctions {
+
+    // Двоичный формат (все числа little-endian):
+    //   int       MAGIC ("TABF")
+    //   int       версия формата
+    //   int       флаги (FLAG_UNIFORM - сетка равномерная, абсциссы не хранятся)
+    //   int       количество точек n
+    //   double    левая граница
+    //   double    правая граница
+    //   double[n] абсциссы (только для неравномерной сетки)
+    //   double[n] ординаты
+    private static final int MAGIC = 0x46424154;        // "TABF" при чтении little-endian
+    private static final int FORMAT_VERSION = 1;
+    private static final int FLAG_UNIFORM = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int BUFFER_SIZE = 1 << 16;     // размер буфера для каналов NIO
+    private static final int READ_INITIAL_CAPACITY = 1 << 16;  // начальный размер массивов при чтении
+
+    // Фабрика, которой создаются функции при чтении
+    private static TabulatedFunctionFactory factory = new ArrayTabulatedFunction.ArrayTabulatedFunctionFactory();
+
+    // Объекты класса не создаются
+    private TabulatedFunctions() {
+    }
+
+    // ФАБРИКА
+
+    public static void setTabulatedFunctionFactory(TabulatedFunctionFactory factory) {
+        if (factory == null) {
+            throw new IllegalArgumentException("Фабрика не может быть null");
+        }
+        TabulatedFunctions.factory = factory;
+    }
+
+    public static TabulatedFunction createTabulatedFunction(double leftX, double rightX, double[] values) {
+        return factory.createTabulatedFunction(leftX, rightX, values);
+    }
+
+    public static TabulatedFunction createTabulatedFunction(double[] xs, double[] ys) {
+        return factory.createTabulatedFunction(xs, ys);
+    }
+
+    // ТАБУЛИРОВАНИЕ АНАЛИТИЧЕСКИХ ФУНКЦИЙ
+
+    private static final int ADAPTIVE_INITIAL_SEGMENTS = 64;   // начальная равномерная сетка адаптивного режима
+    private static final int ADAPTIVE_MAX_DEPTH = 32;          // сколько раз можно делить начальный отрезок пополам
+    private static final double ADAPTIVE_MIN_STEP = 1e-9;      // отрезки короче не делятся (узлы ближе 1e-10 совпадают)
+    private static final int ADAPTIVE_MAX_POINTS = 1 << 22;    // больше узлов адаптивная сетка не строит
+
+    // Равномерная сетка из pointsCount точек на [leftX, rightX] со значениями function в узлах.
+    // Для больших таблиц значения считаются параллельно, функция создается текущей фабрикой
+    public static TabulatedFunction tabulate(DoubleUnaryOperator function, double leftX, double rightX, int pointsCount) {
+        return tabulate(function, leftX, rightX, pointsCount, factory);
+    }
+
+    public static TabulatedFunction tabulate(DoubleUnaryOperator function, double leftX, double rightX, int pointsCount,
+                                             TabulatedFunctionFactory factory) {
+        checkDomain(leftX, rightX);
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+
+        // абсциссы считаются так же, как в конструкторах по границам
+        double step = (rightX - leftX) / (pointsCount - 1);
+        double[] values = new double[pointsCount];
+        forEachRange(0, pointsCount, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = function.applyAsDouble(leftX + i * step);
+            }
+        });
+        return factory.createTabulatedFunction(leftX, rightX, values);
+    }
+
+    // Табулирует функцию (например, ленивое выражение из Functions) на всей ее области определения.
+    // Значения берутся одним пакетным вызовом по упорядоченной сетке, поэтому табулированные функции
+    // внутри выражения обходят свои точки один раз, без поиска отрезка для каждого узла
+    public static TabulatedFunction tabulate(Function function, int pointsCount) {
+        return tabulate(function, pointsCount, factory);
+    }
+
+    public static TabulatedFunction tabulate(Function function, int pointsCount, TabulatedFunctionFactory factory) {
+        double leftX = function.getLeftDomainBorder();
+        double rightX = function.getRightDomainBorder();
+        checkDomain(leftX, rightX);
+        if (pointsCount < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+
+        double step = (rightX - leftX) / (pointsCount - 1);
+        double[] xs = new double[pointsCount];
+        for (int i = 0; i < pointsCount; i++) {
+            xs[i] = leftX + i * step;
+        }
+        // leftX + (n - 1) * step может уйти на ulp за правую границу, где функция уже не определена
+        xs[pointsCount - 1] = rightX;
+        double[] values = new double[pointsCount];
+        function.getFunctionValues(xs, values);
+        return factory.createTabulatedFunction(leftX, rightX, values);
+    }
+
+    // Адаптивная сетка: узлы сгущаются там, где велика кривизна, так что ошибка линейной
+    // интерполяции не превышает maxError. Отрезок делится пополам, пока значение в его середине
+    // отличается от интерполированного больше чем на maxError (это отличие равно h^2 / 8 * |f''|).
+    // Начальные отрезки уточняются параллельно. Особенности уже половины начального шага
+    // (ADAPTIVE_INITIAL_SEGMENTS отрезков на всю область) могут быть пропущены.
+    // Для шумной или негладкой функции деление может не сходиться: если узлов нужно больше
+    // ADAPTIVE_MAX_POINTS, выбрасывается IllegalArgumentException
+    public static TabulatedFunction tabulateAdaptive(DoubleUnaryOperator function, double leftX, double rightX, double maxError) {
+        return tabulateAdaptive(function, leftX, rightX, maxError, factory);
+    }
+
+    public static TabulatedFunction tabulateAdaptive(DoubleUnaryOperator function, double leftX, double rightX, double maxError,
+                                                     TabulatedFunctionFactory factory) {
+        checkDomain(leftX, rightX);
+        if (!(maxError > 0)) {
+            throw new IllegalArgumentException("Допустимая ошибка должна быть положительной: " + maxError);
+        }
+
+        int segmentsCount = ADAPTIVE_INITIAL_SEGMENTS;
+        double step = (rightX - leftX) / segmentsCount;
+        if (step < ADAPTIVE_MIN_STEP) {
+            segmentsCount = 1;
+            step = rightX - leftX;
+        }
+        double initialStep = step;
+        int initialCount = segmentsCount;
+
+        // каждый начальный отрезок собирает свои узлы (кроме правого конца) независимо от остальных,
+        // общий только счетчик узлов для ограничения ADAPTIVE_MAX_POINTS (правый конец области - один узел)
+        AdaptiveSegment[] segments = new AdaptiveSegment[segmentsCount];
+        AtomicInteger nodesCount = new AtomicInteger(1);
+        forEachPart(segmentsCount, (from, to) -> {
+            for (int s = from; s < to; s++) {
+                double a = leftX + s * initialStep;
+                double b = s == initialCount - 1 ? rightX : leftX + (s + 1) * initialStep;
+                AdaptiveSegment segment = new AdaptiveSegment(function, maxError, nodesCount);
+                segment.refine(a, segment.valueAt(a), b, segment.valueAt(b), 0);
+                segments[s] = segment;
+            }
+        });
+
+        int pointsCount = 1;
+        for (AdaptiveSegment segment : segments) {
+            pointsCount += segment.count;
+        }
+        double[] xs = new double[pointsCount];
+        double[] ys = new double[pointsCount];
+        int pos = 0;
+        for (AdaptiveSegment segment : segments) {
+            System.arraycopy(segment.xs, 0, xs, pos, segment.count);
+            System.arraycopy(segment.ys, 0, ys, pos, segment.count);
+            pos += segment.count;
+        }
+        xs[pos] = rightX;
+        ys[pos] = function.applyAsDouble(rightX);
+        return factory.createTabulatedFunction(xs, ys);
+    }
+
+    private static void checkDomain(double leftX, double rightX) {
+        if (!(leftX < rightX)) {
+            throw new IllegalArgumentException("Левая граница области не может быть больше или равна правой");
+        }
+    }
+
+    // Узлы одного начального отрезка в порядке возрастания x
+    private static final class AdaptiveSegment {
+        private final DoubleUnaryOperator function;
+        private final double maxError;
+        private final AtomicInteger nodesCount;  // узлы всех отрезков вместе
+        private double[] xs = new double[16];
+        private double[] ys = new double[16];
+        private int count;
+
+        AdaptiveSegment(DoubleUnaryOperator function, double maxError, AtomicInteger nodesCount) {
+            this.function = function;
+            this.maxError = maxError;
+            this.nodesCount = nodesCount;
+        }
+
+        // Значение функции; в неопределенной точке ошибку интерполяции оценить нельзя
+        double valueAt(double x) {
+            double y = function.applyAsDouble(x);
+            if (!Double.isFinite(y)) {
+                throw new IllegalArgumentException("Функция не определена или бесконечна в точке x=" + x);
+            }
+            return y;
+        }
+
+        // Добавляет левый конец [a, b] и узлы внутри него; правый конец добавит следующий отрезок
+        void refine(double a, double fa, double b, double fb, int depth) {
+            double m = 0.5 * (a + b);
+            if (depth < ADAPTIVE_MAX_DEPTH && m - a >= ADAPTIVE_MIN_STEP) {
+                double fm = valueAt(m);
+                if (Math.abs(fm - 0.5 * (fa + fb)) > maxError) {
+                    refine(a, fa, m, fm, depth + 1);
+                    refine(m, fm, b, fb, depth + 1);
+                    return;
+                }
+            }
+            add(a, fa);
+        }
+
+        private void add(double x, double y) {
+            if (nodesCount.incrementAndGet() > ADAPTIVE_MAX_POINTS) {
+                throw new IllegalArgumentException("Для ошибки " + maxError + " нужно больше " + ADAPTIVE_MAX_POINTS
+                        + " узлов - функция слишком изменчива или допустимая ошибка слишком мала");
+            }
+            if (count == xs.length) {
+                int capacity = count * 2;
+                double[] newXs = new double[capacity];
+                double[] newYs = new double[capacity];
+                System.arraycopy(xs, 0, newXs, 0, count);
+                System.arraycopy(ys, 0, newYs, 0, count);
+                xs = newXs;
+                ys = newYs;
+            }
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+        }
+    }
+
+    // АРИФМЕТИКА ТАБУЛИРОВАННЫХ ФУНКЦИЙ
+    //
+    // Результат - новая функция, созданная фабрикой (по умолчанию текущей). Ленивые выражения
+    // без построения таблиц дает класс Functions.
+    // Сумма, разность и произведение строятся на объединении узлов обеих функций из пересечения
+    // их областей определения (узлы ближе 1e-10 считаются одним). Узлы обеих функций уже упорядочены,
+    // поэтому объединение получается одним слиянием за O(n + m), а значение каждой функции в узлах
+    // берется на ее текущем отрезке, который только сдвигается вперед - без поиска отрезка для каждой точки.
+    // Сумма и разность ломаных - ломаная с узлами в объединении, поэтому они точны; произведение
+    // между узлами - парабола, и таблица хранит только его значения в узлах
+
+    public static TabulatedFunction sum(TabulatedFunction first, TabulatedFunction second) {
+        return sum(first, second, factory);
+    }
+
+    public static TabulatedFunction sum(TabulatedFunction first, TabulatedFunction second, TabulatedFunctionFactory factory) {
+        return combine(first, second, Double::sum, factory);
+    }
+
+    public static TabulatedFunction difference(TabulatedFunction first, TabulatedFunction second) {
+        return difference(first, second, factory);
+    }
+
+    public static TabulatedFunction difference(TabulatedFunction first, TabulatedFunction second, TabulatedFunctionFactory factory) {
+        return combine(first, second, (a, b) -> a - b, factory);
+    }
+
+    public static TabulatedFunction mult(TabulatedFunction first, TabulatedFunction second) {
+        return mult(first, second, factory);
+    }
+
+    public static TabulatedFunction mult(TabulatedFunction first, TabulatedFunction second, TabulatedFunctionFactory factory) {
+        return combine(first, second, (a, b) -> a * b, factory);
+    }
+
+    private static TabulatedFunction combine(TabulatedFunction first, TabulatedFunction second,
+                                             DoubleBinaryOperator operation, TabulatedFunctionFactory factory) {
+        double[] firstXs = getXs(first);
+        double[] firstYs = getYs(first);
+        double[] secondXs = getXs(second);
+        double[] secondYs = getYs(second);
+        double left = Math.max(firstXs[0], secondXs[0]);
+        double right = Math.min(firstXs[firstXs.length - 1], secondXs[secondXs.length - 1]);
+        if (!(right - left > 1e-10)) {
+            throw new IllegalArgumentException("Области определения функций не пересекаются: ["
+                    + left + ", " + right + "]");
+        }
+
+        // узлы из [left, right]; узлы ближе 1e-10 к границе тоже берутся - их значения привяжутся к краю
+        int i = lowerBound(firstXs, 0, firstXs.length, left - 1e-10);
+        int firstEnd = lowerBound(firstXs, i, firstXs.length, right + 1e-10);
+        int j = lowerBound(secondXs, 0, secondXs.length, left - 1e-10);
+        int secondEnd = lowerBound(secondXs, j, secondXs.length, right + 1e-10);
+
+        double[] xs = new double[firstEnd - i + secondEnd - j];
+        int count = 0;
+        while (i < firstEnd || j < secondEnd) {
+            if (j == secondEnd || (i < firstEnd && firstXs[i] < secondXs[j] - 1e-10)) {
+                xs[count++] = firstXs[i++];
+            } else if (i == firstEnd || secondXs[j] < firstXs[i] - 1e-10) {
+                xs[count++] = secondXs[j++];
+            } else {
+                // совпадающие узлы
+                xs[count++] = firstXs[i++];
+                j++;
+            }
+        }
+
+        double[] ys = valuesAlong(firstXs, firstYs, xs, count);
+        double[] secondValues = valuesAlong(secondXs, secondYs, xs, count);
+        for (int k = 0; k < count; k++) {
+            ys[k] = operation.applyAsDouble(ys[k], secondValues[k]);
+        }
+        double[] resultXs = new double[count];
+        System.arraycopy(xs, 0, resultXs, 0, count);
+        return factory.createTabulatedFunction(resultXs, ys);
+    }
+
+    // Значения ломаной (xs, ys) в упорядоченных точках at[0, count): текущий отрезок только сдвигается вперед
+    private static double[] valuesAlong(double[] xs, double[] ys, double[] at, int count) {
+        double[] values = new double[count];
+        int last = xs.length - 2;  // номер последнего отрезка
+        int i = 0;
+        for (int k = 0; k < count; k++) {
+            double x = at[k];
+            while (i < last && xs[i + 1] <= x) {
+                i++;
+            }
+            values[k] = valueOnSegment(xs, ys, i, x);
+        }
+        return values;
+    }
+
+    // Значение ломаной (xs, ys) в точке x: NaN вне области определения, иначе бинарный поиск отрезка
+    private static double valueAt(double[] xs, double[] ys, double x) {
+        int last = xs.length - 1;
+        if (x < xs[0] || x > xs[last]) {
+            return Double.NaN;
+        }
+        int i = Math.max(lowerBound(xs, 0, last, x) - 1, 0);
+        return valueOnSegment(xs, ys, i, x);
+    }
+
+    // Значение на отрезке i с привязкой к узлам (точки ближе 1e-10 к узлу получают значение в узле)
+    private static double valueOnSegment(double[] xs, double[] ys, int i, double x) {
+        if (Math.abs(x - xs[i]) < 1e-10) {
+            return ys[i];
+        }
+        if (Math.abs(x - xs[i + 1]) < 1e-10) {
+            return ys[i + 1];
+        }
+        return ys[i] + (ys[i + 1] - ys[i]) * (x - xs[i]) / (xs[i + 1] - xs[i]);
+    }
+
+    // Растяжение: точки (x * scaleX, y * scaleY). При отрицательном scaleX порядок точек меняется на обратный
+    public static TabulatedFunction scale(TabulatedFunction function, double scaleX, double scaleY) {
+        return scale(function, scaleX, scaleY, factory);
+    }
+
+    public static TabulatedFunction scale(TabulatedFunction function, double scaleX, double scaleY,
+                                          TabulatedFunctionFactory factory) {
+        if (scaleX == 0 || Double.isNaN(scaleX)) {
+            throw new IllegalArgumentException("Коэффициент растяжения по x не может быть нулем: " + scaleX);
+        }
+        double[] xs = getXs(function);
+        double[] ys = getYs(function);
+        int last = xs.length - 1;
+        double[] resultXs = new double[xs.length];
+        double[] resultYs = new double[xs.length];
+        for (int i = 0; i <= last; i++) {
+            int k = scaleX > 0 ? i : last - i;
+            resultXs[k] = xs[i] * scaleX;
+            resultYs[k] = ys[i] * scaleY;
+        }
+        return factory.createTabulatedFunction(resultXs, resultYs);
+    }
+
+    // Композиция outer(inner(x)) на области определения внутренней функции. Узлы - узлы внутренней
+    // функции и точки, где ее значение проходит через узел внешней: между ними обе функции линейны,
+    // поэтому композиция тоже ломаная и таблица представляет ее точно. Узлы внешней функции
+    // на каждом отрезке внутренней находятся бинарным поиском: O(m log n + k), k - число новых узлов.
+    // Там, где inner(x) вне области определения outer, значения NaN
+    public static TabulatedFunction composition(TabulatedFunction outer, TabulatedFunction inner) {
+        return composition(outer, inner, factory);
+    }
+
+    public static TabulatedFunction composition(TabulatedFunction outer, TabulatedFunction inner,
+                                                TabulatedFunctionFactory factory) {
+        double[] outerXs = getXs(outer);
+        double[] outerYs = getYs(outer);
+        double[] innerXs = getXs(inner);
+        double[] innerYs = getYs(inner);
+        int outerCount = outerXs.length;
+        int last = innerXs.length - 1;
+
+        // первый проход: сколько узлов внешней функции лежит строго внутри значений каждого отрезка
+        int capacity = innerXs.length;
+        for (int s = 0; s < last; s++) {
+            double y1 = innerYs[s];
+            double y2 = innerYs[s + 1];
+            if (Double.isFinite(y1) && Double.isFinite(y2)) {
+                capacity += Math.abs(lowerBound(outerXs, 0, outerCount, Math.max(y1, y2) - 1e-10)
+                        - lowerBound(outerXs, 0, outerCount, Math.min(y1, y2) + 1e-10));
+            }
+        }
+
+        double[] xs = new double[capacity];
+        double[] ys = new double[capacity];
+        int count = 0;
+        for (int s = 0; s < last; s++) {
+            double x1 = innerXs[s];
+            double x2 = innerXs[s + 1];
+            double y1 = innerYs[s];
+            double y2 = innerYs[s + 1];
+            xs[count] = x1;
+            ys[count] = valueAt(outerXs, outerYs, y1);
+            count++;
+            if (!Double.isFinite(y1) || !Double.isFinite(y2) || y1 == y2) {
+                continue;
+            }
+
+            // узлы внешней функции с u из (min(y1, y2), max(y1, y2)) в порядке возрастания x
+            int from = lowerBound(outerXs, 0, outerCount, Math.min(y1, y2) + 1e-10);
+            int to = lowerBound(outerXs, from, outerCount, Math.max(y1, y2) - 1e-10);
+            for (int n = 0; n < to - from; n++) {
+                int k = y2 > y1 ? from + n : to - 1 - n;
+                double x = x1 + (outerXs[k] - y1) * (x2 - x1) / (y2 - y1);
+                // при крутом отрезке узлы могут сойтись ближе 1e-10 - такие не добавляются
+                if (x - xs[count - 1] > 1e-10 && x2 - x > 1e-10) {
+                    xs[count] = x;
+                    ys[count] = outerYs[k];
+                    count++;
+                }
+            }
+        }
+        xs[count] = innerXs[last];
+        ys[count] = valueAt(outerXs, outerYs, innerYs[last]);
+        count++;
+
+        double[] resultXs = new double[count];
+        double[] resultYs = new double[count];
+        System.arraycopy(xs, 0, resultXs, 0, count);
+        System.arraycopy(ys, 0, resultYs, 0, count);
+        return factory.createTabulatedFunction(resultXs, resultYs);
+    }
+
+    // ДВОИЧНЫЙ ФОРМАТ: потоки DataOutput / DataInput
+
+    // Записывает функцию в поток. Для равномерной сетки сохраняются только ординаты
+    public static void writeTabulatedFunction(TabulatedFunction function, DataOutput out) throws IOException {
+        double[] xs = getXs(function);
+        double[] ys = getYs(function);
+        boolean uniform = isUniformGrid(xs);
+
+        out.writeInt(Integer.reverseBytes(MAGIC));
+        out.writeInt(Integer.reverseBytes(FORMAT_VERSION));
+        out.writeInt(Integer.reverseBytes(uniform ? FLAG_UNIFORM : 0));
+        out.writeInt(Integer.reverseBytes(xs.length));
+        writeDouble(out, xs[0]);
+        writeDouble(out, xs[xs.length - 1]);
+        if (!uniform) {
+            for (double x : xs) {
+                writeDouble(out, x);
+            }
+        }
+        for (double y : ys) {
+            writeDouble(out, y);
+        }
+    }
+
+    // Читает функцию из потока, создавая ее текущей фабрикой
+    public static TabulatedFunction readTabulatedFunction(DataInput in) throws IOException {
+        return readTabulatedFunction(in, factory);
+    }
+
+    public static TabulatedFunction readTabulatedFunction(DataInput in, TabulatedFunctionFactory factory) throws IOException {
+        int magic = Integer.reverseBytes(in.readInt());
+        int version = Integer.reverseBytes(in.readInt());
+        int flags = Integer.reverseBytes(in.readInt());
+        int count = Integer.reverseBytes(in.readInt());
+        checkHeader(magic, version, count);
+        double leftX = readDouble(in);
+        double rightX = readDouble(in);
+
+        double[] xs = (flags & FLAG_UNIFORM) == 0 ? readDoubles(in, count) : null;
+        double[] ys = readDoubles(in, count);
+        return xs == null ? factory.createTabulatedFunction(leftX, rightX, ys) : factory.createTabulatedFunction(xs, ys);
+    }
+
+    private static void writeDouble(DataOutput out, double value) throws IOException {
+        out.writeLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+    }
+
+    private static double readDouble(DataInput in) throws IOException {
+        return Double.longBitsToDouble(Long.reverseBytes(in.readLong()));
+    }
+
+    // Читает count значений. Массив растет по мере поступления данных, а не выделяется по заголовку сразу:
+    // для обрезанного или испорченного потока с огромным count чтение кончается EOFException, а не нехваткой памяти
+    private static double[] readDoubles(DataInput in, int count) throws IOException {
+        double[] values = new double[Math.min(count, READ_INITIAL_CAPACITY)];
+        for (int i = 0; i < count; i++) {
+            if (i == values.length) {
+                values = grow(values, count);
+            }
+            values[i] = readDouble(in);
+        }
+        return values;
+    }
+
+    // Увеличивает массив вдвое, но не больше чем до count значений
+    private static double[] grow(double[] values, int count) {
+        double[] grown = new double[(int) Math.min(2L * values.length, count)];
+        System.arraycopy(values, 0, grown, 0, values.length);
+        return grown;
+    }
+
+    // ДВОИЧНЫЙ ФОРМАТ: каналы NIO (тот же формат, массивы передаются блоками через буфер)
+
+    public static void writeTabulatedFunction(TabulatedFunction function, WritableByteChannel channel) throws IOException {
+        double[] xs = getXs(function);
+        double[] ys = getYs(function);
+        boolean uniform = isUniformGrid(xs);
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(uniform ? FLAG_UNIFORM : 0);
+        buffer.putInt(xs.length);
+        buffer.putDouble(xs[0]);
+        buffer.putDouble(xs[xs.length - 1]);
+        if (!uniform) {
+            writeDoubles(channel, buffer, xs);
+        }
+        writeDoubles(channel, buffer, ys);
+        flush(channel, buffer);
+    }
+
+    public static TabulatedFunction readTabulatedFunction(ReadableByteChannel channel) throws IOException {
+        return readTabulatedFunction(channel, factory);
+    }
+
+    public static TabulatedFunction readTabulatedFunction(ReadableByteChannel channel, TabulatedFunctionFactory factory) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(HEADER_SIZE);
+        fill(channel, buffer);
+        buffer.flip();
+        int magic = buffer.getInt();
+        int version = buffer.getInt();
+        int flags = buffer.getInt();
+        int count = buffer.getInt();
+        checkHeader(magic, version, count);
+        double leftX = buffer.getDouble();
+        double rightX = buffer.getDouble();
+
+        double[] xs = (flags & FLAG_UNIFORM) == 0 ? readDoubles(channel, buffer, count) : null;
+        double[] ys = readDoubles(channel, buffer, count);
+        return xs == null ? factory.createTabulatedFunction(leftX, rightX, ys) : factory.createTabulatedFunction(xs, ys);
+    }
+
+    // Дописывает массив в буфер, сбрасывая буфер в канал по мере заполнения
+    private static void writeDoubles(WritableByteChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        int written = 0;
+        while (written < values.length) {
+            if (buffer.remaining() < Double.BYTES) {
+                flush(channel, buffer);
+            }
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            int portion = Math.min(doubles.remaining(), values.length - written);
+            doubles.put(values, written, portion);
+            buffer.position(buffer.position() + portion * Double.BYTES);
+            written += portion;
+        }
+    }
+
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Читает count значений из канала блоками размера буфера (массив растет по мере чтения, как для DataInput)
+    private static double[] readDoubles(ReadableByteChannel channel, ByteBuffer buffer, int count) throws IOException {
+        double[] values = new double[Math.min(count, READ_INITIAL_CAPACITY)];
+        int read = 0;
+        while (read < count) {
+            int portion = Math.min(BUFFER_SIZE / Double.BYTES, count - read);
+            if (read + portion > values.length) {
+                values = grow(values, count);
+            }
+            buffer.clear();
+            buffer.limit(portion * Double.BYTES);
+            fill(channel, buffer);
+            buffer.flip();
+            buffer.asDoubleBuffer().get(values, read, portion);
+            read += portion;
+        }
+        return values;
+    }
+
+    // Читает из канала, пока буфер не заполнится до limit
+    private static void fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Неожиданный конец данных табулированной функции");
+            }
+        }
+    }
+
+    private static void checkHeader(int magic, int version, int count) throws IOException {
+        if (magic != MAGIC) {
+            throw new IOException("Данные не содержат табулированную функцию");
+        }
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Неподдерживаемая версия формата: " + version);
+        }
+        if (count < 2) {
+            throw new IOException("Некорректное количество точек: " + count);
+        }
+    }
+
+    static double[] getXs(TabulatedFunction function) {
+        double[] xs = new double[function.getPointsCount()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = function.getPointX(i);
+        }
+        return xs;
+    }
+
+    static double[] getYs(TabulatedFunction function) {
+        double[] ys = new double[function.getPointsCount()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = function.getPointY(i);
+        }
+        return ys;
+    }
+
+    // Сетка равномерная, если конструктор по границам xs[0], xs[n-1] восстановит абсциссы
+    // бит в бит - тогда их можно не хранить без потери точности
+    static boolean isUniformGrid(double[] xs) {
+        int last = xs.length - 1;
+        double step = (xs[last] - xs[0]) / last;
+        for (int i = 1; i <= last; i++) {
+            if (Double.compare(xs[i], xs[0] + i * step) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ПАРАЛЛЕЛЬНЫЕ ОПЕРАЦИИ
+    //
+    // Массовые операции (mapY, fillY, evaluateAll) делят работу между ядрами через общий ForkJoinPool.
+    // Диапазоны короче порога обрабатываются в текущем потоке: для маленьких таблиц
+    // запуск задач обходится дороже самой работы
+
+    // Обработка части [from, to) диапазона номеров
+    interface RangeAction {
+        void apply(int from, int to);
+    }
+
+    private static volatile int parallelThreshold = 1 << 15;
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Порог параллельной обработки должен быть положительным: " + threshold);
+        }
+        parallelThreshold = threshold;
+    }
+
+    // Выполняет action над [from, to): последовательно, если диапазон короче порога,
+    // иначе делит его пополам, пока частей не станет в несколько раз больше, чем ядер
+    static void forEachRange(int from, int to, RangeAction action) {
+        int length = to - from;
+        if (length < parallelThreshold) {
+            if (length > 0) {
+                action.apply(from, to);
+            }
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new RangeTask(from, to, Math.max(length / parallelParts(length), 1), action));
+    }
+
+    // На сколько частей делить length элементов. Нужна структурам, которые нельзя делить пополам
+    // без обхода (связный список): они заранее находят начала частей и обрабатывают их через forEachPart
+    static int parallelParts(int length) {
+        if (length < parallelThreshold) {
+            return 1;
+        }
+        return Math.min(length, ForkJoinPool.getCommonPoolParallelism() * 4);
+    }
+
+    // Выполняет action над частями с номерами [0, partsCount), каждая часть - отдельная задача
+    static void forEachPart(int partsCount, RangeAction action) {
+        if (partsCount == 1) {
+            action.apply(0, 1);
+        } else if (partsCount > 1) {
+            ForkJoinPool.commonPool().invoke(new RangeTask(0, partsCount, 1, action));
+        }
+    }
+
+    // Задача делит диапазон пополам, пока он длиннее grain
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final RangeAction action;
+
+        RangeTask(int from, int to, int grain, RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.action = action;
+        }
+
+        protected void compute() {
+            if (to - from <= grain) {
+                action.apply(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, grain, action), new RangeTask(mid, to, grain, action));
+        }
+    }
+
+    // УПРОЩЕНИЕ (УДАЛЕНИЕ ЛИШНИХ УЗЛОВ)
+
+    // Копия функции без узлов, удаление которых меняет линейную интерполяцию не больше чем на maxError.
+    // Копия создается текущей фабрикой, исходная функция не меняется
+    public static TabulatedFunction simplify(TabulatedFunction function, double maxError) {
+        return simplify(function, maxError, factory);
+    }
+
+    public static TabulatedFunction simplify(TabulatedFunction function, double maxError, TabulatedFunctionFactory factory) {
+        double[] xs = getXs(function);
+        double[] ys = getYs(function);
+        boolean[] keep = simplificationMask(xs, ys, xs.length, maxError);
+        int count = 0;
+        for (int i = 0; i < xs.length; i++) {
+            if (keep[i]) {
+                xs[count] = xs[i];
+                ys[count] = ys[i];
+                count++;
+            }
+        }
+        double[] keptXs = new double[count];
+        double[] keptYs = new double[count];
+        System.arraycopy(xs, 0, keptXs, 0, count);
+        System.arraycopy(ys, 0, keptYs, 0, count);
+        return factory.createTabulatedFunction(keptXs, keptYs);
+    }
+
+    // Какие из первых count узлов оставить (алгоритм Рамера - Дугласа - Пекера по вертикальному отклонению).
+    // Крайние узлы остаются всегда. Между двумя оставленными узлами ищется узел, дальше всех по
+    // вертикали отстоящий от соединяющей их хорды; если отклонение больше maxError, узел остается
+    // и обе половины проверяются так же. Разность двух ломаных линейна на каждом исходном отрезке,
+    // поэтому отклонение в узлах ограничивает ошибку всюду. Отрезки ждут проверки в явном стеке.
+    // Обычно O(n log n), в худшем случае (каждое деление отщепляет один узел) O(n^2)
+    static boolean[] simplificationMask(double[] xs, double[] ys, int count, double maxError) {
+        if (!(maxError >= 0)) {
+            throw new IllegalArgumentException("Допустимая ошибка не может быть отрицательной: " + maxError);
+        }
+        boolean[] keep = new boolean[count];
+        if (count == 0) {
+            return keep;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        int[] stack = new int[32];   // пары (first, last) номеров оставленных узлов
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double slope = (ys[last] - ys[first]) / (xs[last] - xs[first]);
+            int worst = -1;
+            double worstError = maxError;
+            for (int i = first + 1; i < last; i++) {
+                double error = Math.abs(ys[first] + slope * (xs[i] - xs[first]) - ys[i]);
+                if (!(error <= worstError)) {  // NaN тоже не дает удалить узел
+                    worst = i;
+                    worstError = Double.isNaN(error) ? Double.POSITIVE_INFINITY : error;
+                }
+            }
+            if (worst < 0) {
+                continue;
+            }
+            keep[worst] = true;
+            if (top + 4 > stack.length) {
+                int[] grown = new int[stack.length * 2];
+                System.arraycopy(stack, 0, grown, 0, top);
+                stack = grown;
+            }
+            stack[top++] = first;
+            stack[top++] = worst;
+            stack[top++] = worst;
+            stack[top++] = last;
+        }
+        return keep;
+    }
+
+    // ПАКЕТНОЕ ДОБАВЛЕНИЕ ТОЧЕК
+
+    private static final int INSERTION_SORT_RUN = 32;   // короткие отрезки сортируются вставками
+
+    // Абсциссы и ординаты массива точек в отдельных массивах
+    static double[] xsOf(FunctionPoint[] points) {
+        double[] xs = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null) {
+                throw new IllegalArgumentException("Точка с номером " + i + " не может быть null");
+            }
+            xs[i] = points[i].getX();
+        }
+        return xs;
+    }
+
+    static double[] ysOf(FunctionPoint[] points) {
+        double[] ys = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null) {
+                throw new IllegalArgumentException("Точка с номером " + i + " не может быть null");
+            }
+            ys[i] = points[i].getY();
+        }
+        return ys;
+    }
+
+    // Готовит набор точек к слиянию с функцией: упорядочивает пары (x, y) по x прямо в массивах
+    // и проверяет, что абсциссы не NaN и попарно различаются больше чем на 1e-10
+    static void sortBatch(double[] xs, double[] ys) throws InappropriateFunctionPointException {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Количество абсцисс " + xs.length + " не совпадает с количеством ординат " + ys.length);
+        }
+        for (double x : xs) {
+            if (Double.isNaN(x)) {
+                throw new InappropriateFunctionPointException("Абсцисса точки не может быть NaN");
+            }
+        }
+        if (!isSorted(xs, 0, xs.length)) {
+            sortPairs(xs, ys);
+        }
+        for (int i = 1; i < xs.length; i++) {
+            if (xs[i] - xs[i - 1] < 1e-10) {
+                throw new InappropriateFunctionPointException("Точка с x=" + xs[i] + " повторяется в добавляемом наборе");
+            }
+        }
+    }
+
+    // Сортировка слиянием снизу вверх: O(k log k) в худшем случае.
+    // Сначала вставками сортируются отрезки по INSERTION_SORT_RUN элементов, затем они попарно сливаются
+    static void sortPairs(double[] xs, double[] ys) {
+        int n = xs.length;
+        for (int start = 0; start < n; start += INSERTION_SORT_RUN) {
+            int end = Math.min(start + INSERTION_SORT_RUN, n);
+            for (int i = start + 1; i < end; i++) {
+                double x = xs[i];
+                double y = ys[i];
+                int j = i - 1;
+                while (j >= start && xs[j] > x) {
+                    xs[j + 1] = xs[j];
+                    ys[j + 1] = ys[j];
+                    j--;
+                }
+                xs[j + 1] = x;
+                ys[j + 1] = y;
+            }
+        }
+        if (n <= INSERTION_SORT_RUN) {
+            return;
+        }
+
+        // Слияния идут попеременно из исходных массивов в буферы и обратно
+        double[] srcXs = xs;
+        double[] srcYs = ys;
+        double[] dstXs = new double[n];
+        double[] dstYs = new double[n];
+        for (int width = INSERTION_SORT_RUN; width < n; width *= 2) {
+            for (int left = 0; left < n; left += 2 * width) {
+                int mid = Math.min(left + width, n);
+                int right = Math.min(left + 2 * width, n);
+                int i = left;
+                int j = mid;
+                int k = left;
+                while (i < mid && j < right) {
+                    if (srcXs[j] < srcXs[i]) {
+                        dstXs[k] = srcXs[j];
+                        dstYs[k++] = srcYs[j++];
+                    } else {
+                        dstXs[k] = srcXs[i];
+                        dstYs[k++] = srcYs[i++];
+                    }
+                }
+                System.arraycopy(srcXs, i, dstXs, k, mid - i);
+                System.arraycopy(srcYs, i, dstYs, k, mid - i);
+                k += mid - i;
+                System.arraycopy(srcXs, j, dstXs, k, right - j);
+                System.arraycopy(srcYs, j, dstYs, k, right - j);
+            }
+            double[] swap = srcXs;
+            srcXs = dstXs;
+            dstXs = swap;
+            swap = srcYs;
+            srcYs = dstYs;
+            dstYs = swap;
+        }
+        if (srcXs != xs) {
+            System.arraycopy(srcXs, 0, xs, 0, n);
+            System.arraycopy(srcYs, 0, ys, 0, n);
+        }
+    }
+
+    // Проверяет одним проходом, что ни одна точка упорядоченного набора batchXs не совпадает
+    // (с точностью 1e-10) с первыми count точками упорядоченного массива xs
+    static void checkBatchConflicts(double[] xs, int count, double[] batchXs) throws InappropriateFunctionPointException {
+        int i = 0;
+        for (double x : batchXs) {
+            while (i < count && xs[i] <= x - 1e-10) {
+                i++;
+            }
+            if (i < count && Math.abs(xs[i] - x) < 1e-10) {
+                throw new InappropriateFunctionPointException("Точка с x=" + x + " уже существует в функции");
+            }
+        }
+    }
+
+    // Сливает упорядоченный набор с первыми count точками массивов xs, ys прямо на месте, с конца:
+    // каждая точка сдвигается один раз. Массивы должны вмещать count + batchXs.length точек
+    static void mergeBatch(double[] xs, double[] ys, int count, double[] batchXs, double[] batchYs) {
+        int i = count - 1;
+        int j = batchXs.length - 1;
+        for (int w = count + batchXs.length - 1; j >= 0; w--) {
+            if (i >= 0 && xs[i] > batchXs[j]) {
+                xs[w] = xs[i];
+                ys[w] = ys[i--];
+            } else {
+                xs[w] = batchXs[j];
+                ys[w] = batchYs[j--];
+            }
+        }
+    }
+
+    // ПРОВЕРКИ
+
+    // Проверяет массивы точек для конструкторов с произвольной сеткой
+    static void checkPoints(double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Количество абсцисс " + xs.length + " не совпадает с количеством ординат " + ys.length);
+        }
+        if (xs.length < 2) {
+            throw new IllegalArgumentException("Количество точек не может быть меньше двух");
+        }
+        for (int i = 1; i < xs.length; i++) {
+            if (!(xs[i] > xs[i - 1] + 1e-10)) {
+                throw new IllegalArgumentException("Абсциссы должны строго возрастать: x[" + i + "] = " + xs[i]
+                        + " не больше x[" + (i - 1) + "] = " + xs[i - 1]);
+            }
+        }
+    }
+
+    // Проверяет границы частей массивов для пакетного вычисления значений
+    static void checkBatchRange(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Количество значений не может быть отрицательным: " + length);
+        }
+        if (xsOffset < 0 || xsOffset > xs.length - length) {
+            throw new ArrayIndexOutOfBoundsException("Диапазон [" + xsOffset + ", " + xsOffset + " + " + length
+                    + ") выходит за границы массива аргументов длины " + xs.length);
+        }
+        if (outOffset < 0 || outOffset > out.length - length) {
+            throw new ArrayIndexOutOfBoundsException("Диапазон [" + outOffset + ", " + outOffset + " + " + length
+                    + ") выходит за границы массива результатов длины " + out.length);
+        }
+    }
+
+    // Номер первого элемента упорядоченной части xs[from, to), не меньшего x (to, если таких нет)
+    static int lowerBound(double[] xs, int from, int to, double x) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Проверяет, что аргументы упорядочены по неубыванию (NaN считается нарушением порядка)
+    static boolean isSorted(double[] xs, int offset, int length) {
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (!(xs[i] >= xs[i - 1])) {
+                return false;
+            }
+        }
+        return length == 0 || !Double.isNaN(xs[offset]);
+    }
+}
@@ -0,0 +1,57 @@
+package functions.meta;
+
+import functions.Function;
+
+// Общая часть Sum, Difference и Mult: две функции-операнда, область определения - пересечение
+// их областей, значение - combine(f(x), g(x)). Значения вычисляются при каждом обращении
+// по текущим точкам операндов, таблица результата не строится
+abstract class BinaryOperation implements Function {
+    private final Function first;
+    private final Function second;
+
+    BinaryOperation(Function first, Function second) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException("Функция не может быть null");
+        }
+        this.first = first;
+        this.second = second;
+    }
+
+    // Значение операции для значений первого и второго операнда в одной точке
+    abstract double combine(double a, double b);
+
+    public double getLeftDomainBorder() {
+        return Math.max(first.getLeftDomainBorder(), second.getLeftDomainBorder());
+    }
+
+    public double getRightDomainBorder() {
+        return Math.min(first.getRightDomainBorder(), second.getRightDomainBorder());
+    }
+
+    public double getFunctionValue(double x) {
+        if (!(x >= getLeftDomainBorder() && x <= getRightDomainBorder())) {
+            return Double.NaN;
+        }
+        return combine(first.getFunctionValue(x), second.getFunctionValue(x));
+    }
+
+    // Каждый операнд вычисляется своим пакетным методом: для упорядоченных xs
+    // табулированная функция обходит свои точки один раз, без поиска отрезка для каждого x
+    public void getFunctionValues(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        double left = getLeftDomainBorder();
+        double right = getRightDomainBorder();
+        double[] values = new double[length];
+        second.getFunctionValues(xs, xsOffset, values, 0, length);
+        // аргументы проверяются до записи в out: xs и out могут быть одним массивом
+        for (int i = 0; i < length; i++) {
+            double x = xs[xsOffset + i];
+            if (!(x >= left && x <= right)) {
+                values[i] = Double.NaN;
+            }
+        }
+        first.getFunctionValues(xs, xsOffset, out, outOffset, length);
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = combine(out[outOffset + i], values[i]);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package functions.meta;
+
+import functions.Function;
+
+// Композиция функций outer(inner(x)) на области определения внутренней функции.
+// Там, где inner(x) выходит из области определения внешней функции, значение - то, что она вернет
+// (у табулированных функций NaN). Значения вычисляются при каждом обращении
+public class Composition implements Function {
+    private final Function outer;
+    private final Function inner;
+
+    public Composition(Function outer, Function inner) {
+        if (outer == null || inner == null) {
+            throw new IllegalArgumentException("Функция не может быть null");
+        }
+        this.outer = outer;
+        this.inner = inner;
+    }
+
+    public double getLeftDomainBorder() {
+        return inner.getLeftDomainBorder();
+    }
+
+    public double getRightDomainBorder() {
+        return inner.getRightDomainBorder();
+    }
+
+    public double getFunctionValue(double x) {
+        return outer.getFunctionValue(inner.getFunctionValue(x));
+    }
+
+    // Значения внутренней функции вычисляются ее пакетным методом и целиком передаются внешней.
+    // Для возрастающей внутренней функции внешняя табулированная функция обходит свои точки один раз
+    public void getFunctionValues(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        double[] values = new double[length];
+        inner.getFunctionValues(xs, xsOffset, values, 0, length);
+        outer.getFunctionValues(values, 0, out, outOffset, length);
+    }
+}
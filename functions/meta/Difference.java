@@ -0,0 +1,15 @@
+package functions.meta;
+
+import functions.Function;
+
+// Разность двух функций f(x) - g(x) на пересечении их областей определения.
+// Значения вычисляются при каждом обращении по текущим точкам обеих функций, таблица разности не строится
+public class Difference extends BinaryOperation {
+    public Difference(Function first, Function second) {
+        super(first, second);
+    }
+
+    double combine(double a, double b) {
+        return a - b;
+    }
+}
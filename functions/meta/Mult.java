@@ -0,0 +1,15 @@
+package functions.meta;
+
+import functions.Function;
+
+// Произведение двух функций f(x) * g(x) на пересечении их областей определения.
+// Значения вычисляются при каждом обращении по текущим точкам множителей, таблица произведения не строится
+public class Mult extends BinaryOperation {
+    public Mult(Function first, Function second) {
+        super(first, second);
+    }
+
+    double combine(double a, double b) {
+        return a * b;
+    }
+}
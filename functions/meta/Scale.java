@@ -0,0 +1,63 @@
+package functions.meta;
+
+import functions.Function;
+
+// Растяжение графика функции: scaleY * f(x / scaleX). Область определения растягивается
+// в scaleX раз (при отрицательном scaleX - с отражением). Значения вычисляются при каждом обращении
+public class Scale implements Function {
+    private final Function function;
+    private final double scaleX;
+    private final double scaleY;
+
+    public Scale(Function function, double scaleX, double scaleY) {
+        if (function == null) {
+            throw new IllegalArgumentException("Функция не может быть null");
+        }
+        if (scaleX == 0 || Double.isNaN(scaleX)) {
+            throw new IllegalArgumentException("Коэффициент растяжения по x не может быть нулем: " + scaleX);
+        }
+        this.function = function;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+    }
+
+    public double getLeftDomainBorder() {
+        return scaleX > 0 ? function.getLeftDomainBorder() * scaleX : function.getRightDomainBorder() * scaleX;
+    }
+
+    public double getRightDomainBorder() {
+        return scaleX > 0 ? function.getRightDomainBorder() * scaleX : function.getLeftDomainBorder() * scaleX;
+    }
+
+    public double getFunctionValue(double x) {
+        return scaleY * function.getFunctionValue(argument(x, getLeftDomainBorder(), getRightDomainBorder(),
+                function.getLeftDomainBorder(), function.getRightDomainBorder()));
+    }
+
+    // Аргументы пересчитываются одним проходом и передаются пакетному методу функции
+    public void getFunctionValues(double[] xs, int xsOffset, double[] out, int outOffset, int length) {
+        double left = getLeftDomainBorder();
+        double right = getRightDomainBorder();
+        double innerLeft = function.getLeftDomainBorder();
+        double innerRight = function.getRightDomainBorder();
+        double[] args = new double[length];
+        for (int i = 0; i < length; i++) {
+            args[i] = argument(xs[xsOffset + i], left, right, innerLeft, innerRight);
+        }
+        function.getFunctionValues(args, 0, out, outOffset, length);
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] *= scaleY;
+        }
+    }
+
+    // Аргумент функции x / scaleX. Для x из области определения он прижимается к области определения
+    // функции: (L * scaleX) / scaleX может отличаться от L на единицу последнего разряда, и значение
+    // на собственной границе оказалось бы NaN
+    private double argument(double x, double left, double right, double innerLeft, double innerRight) {
+        double u = x / scaleX;
+        if (x >= left && x <= right) {
+            u = Math.min(Math.max(u, innerLeft), innerRight);
+        }
+        return u;
+    }
+}
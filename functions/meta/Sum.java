@@ -0,0 +1,15 @@
+package functions.meta;
+
+import functions.Function;
+
+// Сумма двух функций f(x) + g(x) на пересечении их областей определения.
+// Значения вычисляются при каждом обращении по текущим точкам слагаемых, таблица суммы не строится
+public class Sum extends BinaryOperation {
+    public Sum(Function first, Function second) {
+        super(first, second);
+    }
+
+    double combine(double a, double b) {
+        return a + b;
+    }
+}